@@ -0,0 +1,107 @@
+package cowards;
+
+import java.util.*;
+
+/**
+  The fixed corpus of mid-game positions the benchmarks run on.
+
+  The positions come from seeded random games, 16, 30, 44 and 60 moves in,
+  with the attackers to move. They are written out here rather than played
+  out at startup so that changes to the rules engine can't change what is
+  being measured.
+ */
+public class BenchmarkPositions {
+  /** The positions, one string per row. */
+  private static final String[][] POSITIONS = new String[][] {
+    {
+      "   A AAA   ",
+      "   AA      ",
+      " A         ",
+      "    A DDD A",
+      "A  DDD    A",
+      "A   DKD  AA",
+      "A  DDD    A",
+      " A     D  A",
+      "      A    ",
+      "          A",
+      "   AAA A   "
+    },
+    {
+      " A AAAAA   ",
+      "   AD     A",
+      "   D       ",
+      "A     D    ",
+      " A   D  A  ",
+      "A    KAD  A",
+      "A  ADD  DAA",
+      "     D  D A",
+      "     D     ",
+      "A   DA     ",
+      "    AA A   "
+    },
+    {
+      " AA  AAA   ",
+      "    A    A ",
+      "           ",
+      "A    D  D A",
+      "A DD   D  A",
+      "A A DKDA  A",
+      "A       D  ",
+      "    A D    ",
+      "  DD  A   A",
+      "     A AD  ",
+      "   A AA    "
+    },
+    {
+      "   A AAA   ",
+      " A   K   A ",
+      "           ",
+      " A D DDD DA",
+      "D     A    ",
+      " AD     A A",
+      "    AD D A ",
+      "AAAA     DA",
+      "    D      ",
+      "   A  D    ",
+      "    AA A   "
+    }
+  };
+
+  /** Constructor. This is a static class. */
+  private BenchmarkPositions() {
+  }
+
+  /** Returns the number of positions in the corpus. */
+  public static int count() {
+    return POSITIONS.length;
+  }
+
+  /**
+    Returns a timer-free board for a position in the corpus. The board counts
+    one move since the last capture, so the defensive position rules treat it
+    as a mid-game board rather than one that just had a capture.
+
+    @param index The position to load.
+    @param attackerTurn Whether the attackers are to move.
+   */
+  public static Board load(int index, boolean attackerTurn) {
+    BoardLayout.GridSquareState[][] grid = new BoardLayout.GridSquareState[11][11];
+    int kingRow = -1;
+    int kingCol = -1;
+    for (int r = 0; r < 11; ++r) {
+      for (int c = 0; c < 11; ++c) {
+        char square = POSITIONS[index][r].charAt(c);
+        grid[r][c] = BoardLoader.charToState(square);
+        if (square == 'K') {
+          kingRow = r;
+          kingCol = c;
+        }
+      }
+    }
+
+    Board loaded = new Board(grid, new LinkedList<int []>(), new LinkedList<int []>(),
+        1, kingRow, kingCol, attackerTurn, 0, 0, 0, new HashMap<String, Integer>());
+    loaded.killTimers();
+    return new Board(loaded, false);
+  }
+}
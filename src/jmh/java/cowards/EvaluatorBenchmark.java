@@ -0,0 +1,137 @@
+package cowards;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+  Compares the evaluators: how fast the search runs on each, and which plays
+  better.
+
+  The benchmark times a depth 4 search of each corpus position with each
+  evaluator. Running the class's main() instead prints the nodes per second
+  of each evaluator on the corpus, then plays matches between them from the
+  opening and from every corpus position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EvaluatorBenchmark {
+  /** How many plies a match game may last before it counts as a draw. */
+  private static final int MAX_PLIES = 200;
+
+  /** The corpus position (see BenchmarkPositions). */
+  @Param({"0", "1", "2", "3"})
+  public int position;
+
+  /** The evaluator to search with: material or table. */
+  @Param({"material", "table"})
+  public String evaluator;
+
+  /** The node holding the position, with the attackers to move. */
+  private Node node;
+
+  /** Loads the position and sets up the evaluator. */
+  @Setup
+  public void setUp() {
+    node = new Node(BenchmarkPositions.load(position, true), null, 0);
+    Minimax.setEvaluator(create(evaluator));
+  }
+
+  /** Puts the default evaluator back. */
+  @TearDown
+  public void tearDown() {
+    Minimax.setEvaluator(null);
+  }
+
+  /** A depth 4 principal variation search. */
+  @Benchmark
+  public SearchResult pvsDepth4() {
+    return PvsSearch.decision(node, 4);
+  }
+
+  /** Returns the evaluator with the given name. */
+  private static Evaluator create(String name) {
+    return name.equals("table") ? new TableEvaluator() : new MaterialEvaluator();
+  }
+
+  /**
+    Plays one game from a position, each side searching to the same depth
+    with its own evaluator.
+
+    @param start The position to start from.
+    @param attackers The evaluator the attackers search with.
+    @param defenders The evaluator the defenders search with.
+    @param depth The depth both sides search to.
+
+    @return 1 if the defenders win, -1 if the attackers do, 0 for a draw.
+   */
+  private static int play(Board start, Evaluator attackers, Evaluator defenders, int depth) {
+    Board board = new Board(start, false);
+    for (int ply = 0; ply < MAX_PLIES && !board.isGameOver(); ++ply) {
+      Minimax.setEvaluator(board.isAttackerTurn() ? attackers : defenders);
+      SearchResult result = PvsSearch.decision(new Node(board, null, 0), depth);
+      if (result == null || result.getMove() == null) {
+        break;
+      }
+      board.makeMove(result.getNode().getLastMove());
+    }
+
+    if (!board.isGameOver() || board.isDraw()) {
+      return 0;
+    }
+    return board.isAttackerTurn() ? -1 : 1;
+  }
+
+  /**
+    Prints the nodes per second of each evaluator on the corpus, then the
+    results of the table evaluator against the material one, playing both
+    sides of the opening and of every corpus position.
+
+    @param args The search depth for the speeds and the match depth, by
+      default 4 and 3.
+   */
+  public static void main(String[] args) throws BadAsciiBoardFormatException {
+    int speedDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int matchDepth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    String[] names = {"material", "table"};
+
+    // The first round warms the JIT up and is not printed.
+    for (int round = 0; round < 2; ++round) {
+      for (String name : names) {
+        Minimax.setEvaluator(create(name));
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (int p = 0; p < BenchmarkPositions.count(); ++p) {
+          Node root = new Node(BenchmarkPositions.load(p, true), null, 0);
+          nodes += PvsSearch.decision(root, speedDepth).getNodes();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (round > 0) {
+          System.out.printf("%-8s depth %d: %10d nodes %8.0f nodes/s%n",
+              name, speedDepth, nodes, nodes / seconds);
+        }
+      }
+    }
+
+    Evaluator material = new MaterialEvaluator();
+    Evaluator table = new TableEvaluator();
+    int wins = 0;
+    int losses = 0;
+    int games = 0;
+    for (int p = -1; p < BenchmarkPositions.count(); ++p) {
+      Board start = p < 0 ? new Board(new Board(), false) : BenchmarkPositions.load(p, true);
+      // The table evaluator defends, then attacks.
+      int result = play(start, material, table, matchDepth);
+      wins += result > 0 ? 1 : 0;
+      losses += result < 0 ? 1 : 0;
+      result = play(start, table, material, matchDepth);
+      wins += result < 0 ? 1 : 0;
+      losses += result > 0 ? 1 : 0;
+      games += 2;
+    }
+    System.out.printf("table vs material at depth %d: +%d -%d =%d%n",
+        matchDepth, wins, losses, games - wins - losses);
+
+    Minimax.setEvaluator(null);
+  }
+}
@@ -0,0 +1,71 @@
+package cowards;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+  Benchmarks for the Monte Carlo tree search, run on each position of the
+  corpus. The playout benchmark's throughput is the playouts per second of
+  one thread, on the full Board and on the PlayoutBoard the search uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MonteCarloBenchmark {
+  /** The corpus position (see BenchmarkPositions). */
+  @Param({"0", "1", "2", "3"})
+  public int position;
+
+  /** The position with the attackers to move. */
+  private Board board;
+
+  /** The position on a playout board. */
+  private PlayoutBoard playoutRoot;
+
+  /** The playout board the playouts run on. */
+  private final PlayoutBoard playoutBoard = new PlayoutBoard();
+
+  /** The move buffer. */
+  private final int[] moves = new int[BoardLayout.MAX_MOVES];
+
+  /** The moves of the playout, taken back after it. */
+  private final ArrayList<UndoRecord> undos = new ArrayList<UndoRecord>();
+
+  /** Picks the playout moves. Seeded, so every run plays the same games. */
+  private final Random random = new Random(1);
+
+  /** Loads the position. */
+  @Setup
+  public void setUp() {
+    board = BenchmarkPositions.load(position, true);
+    playoutRoot = new PlayoutBoard(board);
+  }
+
+  /** One random playout to the end of the game on a playout board. */
+  @Benchmark
+  public double fastPlayout() {
+    playoutBoard.copy(playoutRoot);
+    return MonteCarlo.playout(playoutBoard, moves, random);
+  }
+
+  /** One random playout to the end of the game, and taking it back. */
+  @Benchmark
+  public double playout() {
+    double result = MonteCarlo.playout(board, moves, random, undos);
+    for (int i = undos.size() - 1; i >= 0; --i) {
+      board.unmakeMove(undos.get(i));
+    }
+    undos.clear();
+    return result;
+  }
+
+  /** A 1000 playout search on one thread. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public SearchResult search1000() {
+    return MonteCarlo.decision(new Node(board, null, 0), 0, 1000, 1, new SearchControl());
+  }
+}
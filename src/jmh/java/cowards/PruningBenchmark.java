@@ -0,0 +1,141 @@
+package cowards;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+  Compares the principal variation search with and without null move pruning
+  and late move reductions.
+
+  The benchmark times a depth 4 search of each corpus position under each
+  setting. Running the class's main() instead prints the node counts of a
+  deeper search on the corpus, and plays short matches between each setting
+  and the search without pruning, to show what the pruning costs in
+  strength.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PruningBenchmark {
+  /** The pruning settings, in the order of the names below. */
+  private static final boolean[][] SETTINGS = {
+    {false, false}, {true, false}, {false, true}, {true, true}
+  };
+
+  /** The names of the settings. */
+  private static final String[] NAMES = {"none", "nullMove", "reductions", "both"};
+
+  /** How many plies a match game may last before it counts as a draw. */
+  private static final int MAX_PLIES = 120;
+
+  /** The corpus position (see BenchmarkPositions). */
+  @Param({"0", "1", "2", "3"})
+  public int position;
+
+  /** The pruning to search with: none, nullMove, reductions or both. */
+  @Param({"none", "nullMove", "reductions", "both"})
+  public String pruning;
+
+  /** The node holding the position, with the attackers to move. */
+  private Node node;
+
+  /** Loads the position and sets up the pruning. */
+  @Setup
+  public void setUp() {
+    node = new Node(BenchmarkPositions.load(position, true), null, 0);
+    apply(Arrays.asList(NAMES).indexOf(pruning));
+  }
+
+  /** Puts the default settings back. */
+  @TearDown
+  public void tearDown() {
+    apply(SETTINGS.length - 1);
+  }
+
+  /** A depth 4 principal variation search. */
+  @Benchmark
+  public SearchResult pvsDepth4() {
+    return PvsSearch.decision(node, 4);
+  }
+
+  /** Turns the pruning of a setting on. */
+  private static void apply(int setting) {
+    PvsSearch.setNullMove(SETTINGS[setting][0]);
+    PvsSearch.setLateMoveReductions(SETTINGS[setting][1]);
+  }
+
+  /**
+    Plays one game from a position, each side searching to the same depth
+    with its own pruning.
+
+    @param start The position to start from.
+    @param attackers The setting the attackers search with.
+    @param defenders The setting the defenders search with.
+    @param depth The depth both sides search to.
+
+    @return 1 if the defenders win, -1 if the attackers do, 0 for a draw.
+   */
+  private static int play(Board start, int attackers, int defenders, int depth) {
+    Board board = new Board(start, false);
+    for (int ply = 0; ply < MAX_PLIES && !board.isGameOver(); ++ply) {
+      apply(board.isAttackerTurn() ? attackers : defenders);
+      SearchResult result = PvsSearch.decision(new Node(board, null, 0), depth);
+      if (result.getMove() == null) {
+        break;
+      }
+      board.makeMove(result.getNode().getLastMove());
+    }
+
+    if (!board.isGameOver()) {
+      return 0;
+    }
+    return Minimax.utility(board) > 0 ? 1 : -1;
+  }
+
+  /**
+    Prints the node counts of each setting on the corpus, then the results
+    of each setting against no pruning, playing both sides of every corpus
+    position.
+
+    @param args The search depth for the node counts and the match depth,
+      by default 5 and 3.
+   */
+  public static void main(String[] args) {
+    int countDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int matchDepth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    for (int setting = 0; setting < SETTINGS.length; ++setting) {
+      apply(setting);
+      long nodes = 0;
+      long start = System.nanoTime();
+      for (int p = 0; p < BenchmarkPositions.count(); ++p) {
+        Node root = new Node(BenchmarkPositions.load(p, true), null, 0);
+        nodes += PvsSearch.decision(root, countDepth).getNodes();
+      }
+      long millis = (System.nanoTime() - start) / 1000000;
+      System.out.printf("%-10s depth %d: %10d nodes %7d ms%n",
+          NAMES[setting], countDepth, nodes, millis);
+    }
+
+    for (int setting = 1; setting < SETTINGS.length; ++setting) {
+      int wins = 0;
+      int losses = 0;
+      for (int p = 0; p < BenchmarkPositions.count(); ++p) {
+        Board start = BenchmarkPositions.load(p, true);
+        // The setting defends, then attacks.
+        int result = play(start, 0, setting, matchDepth);
+        wins += result > 0 ? 1 : 0;
+        losses += result < 0 ? 1 : 0;
+        result = play(start, setting, 0, matchDepth);
+        wins += result < 0 ? 1 : 0;
+        losses += result > 0 ? 1 : 0;
+      }
+      int games = 2 * BenchmarkPositions.count();
+      System.out.printf("%-10s vs none at depth %d: +%d -%d =%d%n",
+          NAMES[setting], matchDepth, wins, losses, games - wins - losses);
+    }
+
+    apply(SETTINGS.length - 1);
+  }
+}
@@ -0,0 +1,73 @@
+package cowards;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+  Benchmarks for the rules engine, run on each position of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RulesBenchmark {
+  /** The corpus position (see BenchmarkPositions). */
+  @Param({"0", "1", "2", "3"})
+  public int position;
+
+  /** The position with the attackers to move. */
+  private Board attacking;
+
+  /** The position with the defenders to move. */
+  private Board defending;
+
+  /** The first legal attacker move, as {toRow, toCol, fromRow, fromCol}. */
+  private int[] move;
+
+  /** Loads the position. */
+  @Setup
+  public void setUp() {
+    attacking = BenchmarkPositions.load(position, true);
+    defending = BenchmarkPositions.load(position, false);
+
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    BoardProcessor.generateMoves(attacking, moves);
+    move = BoardLayout.unpackMove(moves[0]);
+  }
+
+  /** Copying a board. This is the baseline for the move benchmark. */
+  @Benchmark
+  public Board copy() {
+    return new Board(attacking, false);
+  }
+
+  /** Copying a board and making a move on it with select() and move(). */
+  @Benchmark
+  public Board move() throws GridOutOfBoundsException {
+    Board board = new Board(attacking, false);
+    board.select(move[2], move[3]);
+    board.move(move[0], move[1]);
+    return board;
+  }
+
+  /** The check for the defenders being surrounded. */
+  @Benchmark
+  public boolean isSurrounded() {
+    return BoardProcessor.isSurrounded(attacking);
+  }
+
+  /** The check for an exit fort around the king. */
+  @Benchmark
+  public boolean isKingGuarded() {
+    return BoardProcessor.isKingGuarded(defending);
+  }
+
+  /**
+    Recording the defensive board position. The same board is used every
+    time, so after the first few calls this measures building the position
+    and finding it already seen three times.
+   */
+  @Benchmark
+  public boolean storeDefensiveBoard() {
+    return BoardProcessor.storeDefensiveBoard(defending);
+  }
+}
@@ -0,0 +1,51 @@
+package cowards;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+  Benchmarks for the pieces of the Minimax search, run on each position of
+  the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchBenchmark {
+  /** The corpus position (see BenchmarkPositions). */
+  @Param({"0", "1", "2", "3"})
+  public int position;
+
+  /** The node holding the position, with the attackers to move. */
+  private Node node;
+
+  /** Loads the position. */
+  @Setup
+  public void setUp() {
+    node = new Node(BenchmarkPositions.load(position, true), null, 0);
+  }
+
+  /** Creating a child node (and board) for every legal move. */
+  @Benchmark
+  public LinkedList<Node> expand() {
+    return Minimax.expand(node);
+  }
+
+  /** Scoring a board. */
+  @Benchmark
+  public double utility() {
+    return Minimax.utility(node.getBoard());
+  }
+
+  /** A depth 3 Minimax search. */
+  @Benchmark
+  public Node minimaxDepth3() {
+    return Minimax.minimaxDecision(node, 3);
+  }
+
+  /** A depth 3 principal variation search, to compare with minimaxDepth3. */
+  @Benchmark
+  public SearchResult pvsDepth3() {
+    return PvsSearch.decision(node, 3);
+  }
+}
@@ -0,0 +1,540 @@
+package cowards;
+
+/**
+  A set of squares on the board, stored as a 128-bit number split across two
+  longs.
+
+  Square (row, col) is bit row * 11 + col (see BoardLayout.squareIndex), so
+  squares 0 to 63 live in the low word and squares 64 to 120 in the high
+  word. The top seven bits of the high word are never set.
+
+  Moving every square in the set one step is a shift: eleven bits for a row
+  and one bit for a column. Column shifts mask off the squares that would
+  otherwise wrap around onto the next row.
+
+  Like java.util.BitSet, the set operations change the set they are called
+  on. The shared masks below are private, so they cannot be changed; the
+  accessors hand out copies, and the hot paths ask about single squares
+  (isEdge(), step()) or write into sets of their own (setToSlide()).
+ */
+public final class BitBoard extends BoardLayout {
+  /** The ray directions. */
+  public static final int NORTH = 0;
+  public static final int SOUTH = 1;
+  public static final int WEST  = 2;
+  public static final int EAST  = 3;
+
+  /** The bits of the high word that are on the board. */
+  private static final long HI_MASK = (1L << (SQUARE_COUNT - 64)) - 1;
+
+  /** Every square. */
+  private static final BitBoard ALL = new BitBoard(-1L, HI_MASK);
+
+  /** The leftmost column. */
+  private static final BitBoard FIRST_COL = new BitBoard();
+
+  /** The rightmost column. */
+  private static final BitBoard LAST_COL = new BitBoard();
+
+  /** Every square on the edge of the board, corners included. */
+  private static final BitBoard EDGES = new BitBoard();
+
+  /** The four corners. */
+  private static final BitBoard CORNERS = new BitBoard();
+
+  /** The squares only the king may stop on: the corners and the throne. */
+  private static final BitBoard SPECIAL = new BitBoard();
+
+  /**
+    The squares from each square to the edge of the board in each direction,
+    not including the square itself. Indexed by direction, then square.
+   */
+  private static final BitBoard[][] RAYS = new BitBoard[4][SQUARE_COUNT];
+
+  /** The squares next to each square. */
+  private static final BitBoard[] NEIGHBORS = new BitBoard[SQUARE_COUNT];
+
+  /**
+    The square one step from each square in each direction, or -1 off the
+    board. Indexed by direction, then square.
+   */
+  private static final int[][] STEPS = new int[4][SQUARE_COUNT];
+
+  static {
+    for (int r = 0; r <= GRID_ROW_MAX; ++r) {
+      FIRST_COL.set(squareIndex(r, 0));
+      LAST_COL.set(squareIndex(r, GRID_COL_MAX));
+      for (int c = 0; c <= GRID_COL_MAX; ++c) {
+        if (r == 0 || c == 0 || r == GRID_ROW_MAX || c == GRID_COL_MAX) {
+          EDGES.set(squareIndex(r, c));
+        }
+      }
+    }
+    for (int[] p : CORNER_SQUARE_POSITIONS) {
+      CORNERS.set(squareIndex(p[0], p[1]));
+    }
+    for (int[] p : SPECIAL_SQUARE_POSITIONS) {
+      SPECIAL.set(squareIndex(p[0], p[1]));
+    }
+
+    int[] rowDeltas = {-1, 1, 0, 0};
+    int[] colDeltas = {0, 0, -1, 1};
+    for (int sq = 0; sq < SQUARE_COUNT; ++sq) {
+      NEIGHBORS[sq] = new BitBoard();
+      for (int dir = NORTH; dir <= EAST; ++dir) {
+        RAYS[dir][sq] = new BitBoard();
+        STEPS[dir][sq] = -1;
+        int row = sq / 11 + rowDeltas[dir];
+        int col = sq % 11 + colDeltas[dir];
+        if (row >= 0 && row <= GRID_ROW_MAX && col >= 0 && col <= GRID_COL_MAX) {
+          NEIGHBORS[sq].set(squareIndex(row, col));
+          STEPS[dir][sq] = squareIndex(row, col);
+        }
+        while (row >= 0 && row <= GRID_ROW_MAX && col >= 0 && col <= GRID_COL_MAX) {
+          RAYS[dir][sq].set(squareIndex(row, col));
+          row += rowDeltas[dir];
+          col += colDeltas[dir];
+        }
+      }
+    }
+  }
+
+  /** Squares 0 to 63. */
+  private long lo;
+
+  /** Squares 64 to 120. */
+  private long hi;
+
+  /** Constructor for an empty set. */
+  public BitBoard() {
+  }
+
+  /**
+    Constructor.
+
+    @param low The bits of squares 0 to 63.
+    @param high The bits of squares 64 to 120.
+   */
+  public BitBoard(long low, long high) {
+    lo = low;
+    hi = high & HI_MASK;
+  }
+
+  /**
+    Copy constructor.
+
+    @param orig The set to copy.
+   */
+  public BitBoard(BitBoard orig) {
+    lo = orig.lo;
+    hi = orig.hi;
+  }
+
+  /**
+    Returns a set holding a single square.
+
+    @param index The square index.
+   */
+  public static BitBoard square(int index) {
+    BitBoard ret = new BitBoard();
+    ret.set(index);
+    return ret;
+  }
+
+  /** Returns every square. */
+  public static BitBoard all() {
+    return ALL.copy();
+  }
+
+  /** Returns every square on the edge of the board, corners included. */
+  public static BitBoard edges() {
+    return EDGES.copy();
+  }
+
+  /** Returns the four corners. */
+  public static BitBoard corners() {
+    return CORNERS.copy();
+  }
+
+  /** Returns the squares only the king may stop on: the corners and the throne. */
+  public static BitBoard special() {
+    return SPECIAL.copy();
+  }
+
+  /**
+    Returns the squares next to a square.
+
+    @param index The square index.
+   */
+  public static BitBoard neighbors(int index) {
+    return NEIGHBORS[index].copy();
+  }
+
+  /**
+    Returns the squares from a square to the edge of the board in a
+    direction, not including the square itself.
+
+    @param index The square index.
+    @param dir NORTH, SOUTH, WEST or EAST.
+   */
+  public static BitBoard ray(int index, int dir) {
+    return RAYS[dir][index].copy();
+  }
+
+  /**
+    Returns the squares a piece passes moving in a straight line from one
+    square to another, the destination included.
+
+    @param from The square index the piece moves from.
+    @param to The square index the piece moves to, in line with from.
+    @param dir The direction from one to the other.
+   */
+  public static BitBoard path(int from, int to, int dir) {
+    return RAYS[dir][from].copy().andNot(RAYS[dir][to]);
+  }
+
+  /**
+    Returns the square one step from a square in a direction, or -1 if that
+    is off the board.
+
+    @param index The square index.
+    @param dir NORTH, SOUTH, WEST or EAST.
+   */
+  public static int step(int index, int dir) {
+    return STEPS[dir][index];
+  }
+
+  /**
+    Returns whether a square is on the edge of the board.
+
+    @param index The square index.
+   */
+  public static boolean isEdge(int index) {
+    return EDGES.get(index);
+  }
+
+  /**
+    Returns whether a square is a corner.
+
+    @param index The square index.
+   */
+  public static boolean isCorner(int index) {
+    return CORNERS.get(index);
+  }
+
+  /**
+    Returns whether only the king may stop on a square.
+
+    @param index The square index.
+   */
+  public static boolean isSpecial(int index) {
+    return SPECIAL.get(index);
+  }
+
+  /** Returns a copy of this set. */
+  public BitBoard copy() {
+    return new BitBoard(this);
+  }
+
+  /**
+    Makes this set a copy of another.
+
+    @param other The set to copy.
+
+    @return This set.
+   */
+  public BitBoard assign(BitBoard other) {
+    lo = other.lo;
+    hi = other.hi;
+    return this;
+  }
+
+  /**
+    Returns whether a square is in the set.
+
+    @param index The square index.
+   */
+  public boolean get(int index) {
+    return index < 64 ? (lo & (1L << index)) != 0 : (hi & (1L << (index - 64))) != 0;
+  }
+
+  /**
+    Adds a square to the set.
+
+    @param index The square index.
+   */
+  public void set(int index) {
+    if (index < 64) {
+      lo |= 1L << index;
+    } else {
+      hi |= 1L << (index - 64);
+    }
+  }
+
+  /**
+    Removes a square from the set.
+
+    @param index The square index.
+   */
+  public void clear(int index) {
+    if (index < 64) {
+      lo &= ~(1L << index);
+    } else {
+      hi &= ~(1L << (index - 64));
+    }
+  }
+
+  /** Returns whether the set has no squares. */
+  public boolean isEmpty() {
+    return (lo | hi) == 0;
+  }
+
+  /** Returns the number of squares in the set. */
+  public int count() {
+    return Long.bitCount(lo) + Long.bitCount(hi);
+  }
+
+  /**
+    Returns whether the two sets share a square.
+
+    @param other The other set.
+   */
+  public boolean intersects(BitBoard other) {
+    return ((lo & other.lo) | (hi & other.hi)) != 0;
+  }
+
+  /**
+    Removes the squares only the king may stop on.
+
+    @return This set.
+   */
+  public BitBoard andNotSpecial() {
+    return andNot(SPECIAL);
+  }
+
+  /** Returns whether the set has a square on the edge of the board. */
+  public boolean touchesEdge() {
+    return intersects(EDGES);
+  }
+
+  /**
+    Returns the lowest square in the set at or after a square, or -1 if there
+    is none. Loop over a set with
+    for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)).
+
+    @param from The square index to start at.
+   */
+  public int nextSetBit(int from) {
+    if (from < 64) {
+      long word = lo & (-1L << from);
+      if (word != 0) {
+        return Long.numberOfTrailingZeros(word);
+      }
+      from = 64;
+    }
+    if (from < 128) {
+      long word = hi & (-1L << (from - 64));
+      if (word != 0) {
+        return 64 + Long.numberOfTrailingZeros(word);
+      }
+    }
+
+    return -1;
+  }
+
+  /** Returns the lowest square in the set, or -1 if it is empty. */
+  public int lowest() {
+    return nextSetBit(0);
+  }
+
+  /** Returns the highest square in the set, or -1 if it is empty. */
+  public int highest() {
+    if (hi != 0) {
+      return 127 - Long.numberOfLeadingZeros(hi);
+    }
+
+    return lo != 0 ? 63 - Long.numberOfLeadingZeros(lo) : -1;
+  }
+
+  /**
+    Keeps only the squares also in the other set.
+
+    @param other The other set.
+
+    @return This set.
+   */
+  public BitBoard and(BitBoard other) {
+    lo &= other.lo;
+    hi &= other.hi;
+    return this;
+  }
+
+  /**
+    Adds the squares of the other set.
+
+    @param other The other set.
+
+    @return This set.
+   */
+  public BitBoard or(BitBoard other) {
+    lo |= other.lo;
+    hi |= other.hi;
+    return this;
+  }
+
+  /**
+    Removes the squares of the other set.
+
+    @param other The other set.
+
+    @return This set.
+   */
+  public BitBoard andNot(BitBoard other) {
+    lo &= ~other.lo;
+    hi &= ~other.hi;
+    return this;
+  }
+
+  /**
+    Shifts every square toward higher indexes. Squares that fall off the end
+    of the board are dropped.
+
+    @param bits How far to shift, between 1 and 63.
+   */
+  private void shiftUp(int bits) {
+    hi = ((hi << bits) | (lo >>> (64 - bits))) & HI_MASK;
+    lo <<= bits;
+  }
+
+  /**
+    Shifts every square toward lower indexes.
+
+    @param bits How far to shift, between 1 and 63.
+   */
+  private void shiftDown(int bits) {
+    lo = (lo >>> bits) | (hi << (64 - bits));
+    hi >>>= bits;
+  }
+
+  /**
+    Moves every square one step in a direction. Squares that would leave the
+    board are dropped.
+
+    @param dir NORTH, SOUTH, WEST or EAST.
+
+    @return This set.
+   */
+  public BitBoard shift(int dir) {
+    switch (dir) {
+      case NORTH:
+        shiftDown(GRID_COL_MAX + 1);
+        break;
+      case SOUTH:
+        shiftUp(GRID_COL_MAX + 1);
+        break;
+      case WEST:
+        andNot(FIRST_COL);
+        shiftDown(1);
+        break;
+      default:
+        andNot(LAST_COL);
+        shiftUp(1);
+        break;
+    }
+
+    return this;
+  }
+
+  /**
+    Adds every square next to a square in the set.
+
+    @return This set.
+   */
+  public BitBoard spread() {
+    BitBoard north = copy().shift(NORTH);
+    BitBoard south = copy().shift(SOUTH);
+    BitBoard west = copy().shift(WEST);
+    BitBoard east = copy().shift(EAST);
+    return or(north).or(south).or(west).or(east);
+  }
+
+  /**
+    Grows the set one step at a time through the passable squares until it
+    stops changing.
+
+    @param passable The squares the fill may enter.
+
+    @return This set.
+   */
+  public BitBoard floodFill(BitBoard passable) {
+    long oldLo;
+    long oldHi;
+    do {
+      oldLo = lo;
+      oldHi = hi;
+      spread().and(passable);
+    } while (lo != oldLo || hi != oldHi);
+
+    return this;
+  }
+
+  /**
+    Returns the empty squares a piece can slide to in one direction, stopping
+    in front of the first occupied square.
+
+    @param from The square the piece is on.
+    @param dir NORTH, SOUTH, WEST or EAST.
+    @param occupied The occupied squares.
+   */
+  public static BitBoard slide(int from, int dir, BitBoard occupied) {
+    return new BitBoard().setToSlide(from, dir, occupied);
+  }
+
+  /**
+    Makes this set the empty squares a piece can slide to in one direction,
+    as slide() does, without allocating.
+
+    @param from The square the piece is on.
+    @param dir NORTH, SOUTH, WEST or EAST.
+    @param occupied The occupied squares. It may not be this set.
+
+    @return This set.
+   */
+  public BitBoard setToSlide(int from, int dir, BitBoard occupied) {
+    BitBoard ray = RAYS[dir][from];
+    long blockLo = ray.lo & occupied.lo;
+    long blockHi = ray.hi & occupied.hi;
+    lo = ray.lo;
+    hi = ray.hi;
+    if ((blockLo | blockHi) != 0) {
+      // The nearest blocker and everything past it is out of reach.
+      int nearest;
+      if (dir == SOUTH || dir == EAST) {
+        nearest = blockLo != 0
+            ? Long.numberOfTrailingZeros(blockLo) : 64 + Long.numberOfTrailingZeros(blockHi);
+      } else {
+        nearest = blockHi != 0
+            ? 127 - Long.numberOfLeadingZeros(blockHi) : 63 - Long.numberOfLeadingZeros(blockLo);
+      }
+      andNot(RAYS[dir][nearest]);
+      clear(nearest);
+    }
+
+    return this;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof BitBoard)) {
+      return false;
+    }
+
+    BitBoard bits = (BitBoard) other;
+    return lo == bits.lo && hi == bits.hi;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.valueOf(lo ^ hi).hashCode();
+  }
+}
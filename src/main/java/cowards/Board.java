@@ -4,6 +4,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import javax.swing.*;
 
 public class Board extends BoardLayout {
@@ -43,9 +44,29 @@ public class Board extends BoardLayout {
   }
 
   /**
-    The internal game board states.
+    The squares holding attackers.
    */
-  private GridSquareState[][] board;
+  private BitBoard attackerBits = new BitBoard();
+
+  /**
+    The squares holding defenders, not counting the king.
+   */
+  private BitBoard defenderBits = new BitBoard();
+
+  /**
+    The square holding the king, if it is still on the board.
+   */
+  private BitBoard kingBits = new BitBoard();
+
+  /**
+    Sets and a buffer for move generation to work in, so that it allocates
+    nothing (see BoardProcessor.generateMoves). They belong to this board
+    alone and are not copied.
+   */
+  private final BitBoard ownScratch = new BitBoard();
+  private final BitBoard occupiedScratch = new BitBoard();
+  private final BitBoard targetScratch = new BitBoard();
+  private final int[] probeBuffer = new int[1];
 
   /**
     Whether or not it is the attacker's turn.
@@ -53,9 +74,11 @@ public class Board extends BoardLayout {
   private boolean attackerTurn = true;
 
   /**
-    Whether or not the game is over.
+    Whether or not the game is over. Volatile, since the clock thread ends
+    the game when a flag falls (see flagFall()), and searches on other
+    threads stop on it.
    */
-  private boolean gameOver = false;
+  private volatile boolean gameOver = false;
 
   /**
     The list of attacker's moves.
@@ -80,7 +103,7 @@ public class Board extends BoardLayout {
   /**
     The maximum number of moves allowed without a capture.
    */
-  private final int maxMovesWoCapture = 50;
+  static final int MAX_MOVES_WO_CAPTURE = 50;
 
   /**
     The current number of moves without a capture.
@@ -117,11 +140,59 @@ public class Board extends BoardLayout {
    */
   private BoardTimer defenderTimer;
 
+  /**
+    The one-shot task on the shared ClockScheduler that ends the game when
+    the timer of the side to move runs out. It is set again whenever that
+    timer starts, and cancelled whenever it stops.
+   */
+  private volatile ScheduledFuture<?> flagFall;
+
+  /**
+    Whether a flag can fall. A board built with no time on either clock, such
+    as a benchmark position, has no time control, and its game never ends on
+    time.
+   */
+  private boolean timeControl = true;
+
   /**
     The defensive board positions and their usage counts.
    */
   private HashMap<String, Integer> defensive;
 
+  /**
+    The Zobrist hash of the pieces on the board (without the side to move).
+   */
+  private long pieceHash;
+
+  /**
+    The number of defending pieces, the king among them, less the number of
+    attackers. Kept up to date square by square, see updateTerms().
+   */
+  private int material;
+
+  /**
+    The king's distance to its nearest corner. Kept up to date square by
+    square, see updateTerms().
+   */
+  private double kingDistance;
+
+  /**
+    The distance of each square to its nearest corner, as
+    Minimax.kingBestCorner() measures it.
+   */
+  private static final double[] CORNER_DISTANCE = new double[SQUARE_COUNT];
+
+  static {
+    for (int sq = 0; sq < SQUARE_COUNT; ++sq) {
+      CORNER_DISTANCE[sq] = cornerDistance(sq / 11, sq % 11);
+    }
+  }
+
+  /**
+    The undo record of the move being made, if it was made with makeMove().
+   */
+  private UndoRecord recording;
+
   /**
     Constructor.
   */
@@ -137,7 +208,9 @@ public class Board extends BoardLayout {
     @param createTimer If the board should be equipped with a timer.
    */
   public Board(Board orig, boolean createTimer) {
-    board          = orig.getBoard();
+    attackerBits   = orig.attackerBits.copy();
+    defenderBits   = orig.defenderBits.copy();
+    kingBits       = orig.kingBits.copy();
     attackerMoves  = orig.getAttMoves();
     defenderMoves  = orig.getDefMoves();
     attackers      = orig.getAttackers();
@@ -148,6 +221,9 @@ public class Board extends BoardLayout {
     attackerTurn   = orig.isAttackerTurn();
     gameOver       = orig.isGameOver();
     defensive      = new HashMap<String, Integer>(orig.getDefensiveBoardPositions());
+    pieceHash      = orig.pieceHash;
+    material       = orig.material;
+    kingDistance   = orig.kingDistance;
 
     // The AI does not need to track every child board's timer.
     if (createTimer) {
@@ -164,13 +240,17 @@ public class Board extends BoardLayout {
   public Board(GridSquareState[][] innerBoard, LinkedList<int []> am,
       LinkedList<int []> dm, int mwoCap, int kr, int kc, boolean at,
       int atc, int dtc, int append, HashMap<String, Integer> dbp) {
-    board = innerBoard;
+    for (int r = 0; r <= GRID_ROW_MAX; ++r) {
+      for (int c = 0; c <= GRID_COL_MAX; ++c) {
+        putSquare(squareIndex(r, c), innerBoard[r][c]);
+      }
+    }
 
     attackerMoves = am;
     defenderMoves = dm;
 
-    attackers = BoardProcessor.findAllAttackers(board);
-    defenders = BoardProcessor.findAllDefenders(board);
+    attackers = BoardProcessor.findAllAttackers(innerBoard);
+    defenders = BoardProcessor.findAllDefenders(innerBoard);
 
     movesWoCapture = mwoCap;
     kingRow        = kr;
@@ -179,6 +259,8 @@ public class Board extends BoardLayout {
     gameOver       = false;
 
     defensive      = dbp;
+    pieceHash      = hashPieces();
+    resetTerms();
 
     initializeTimers(atc, dtc, append, attackerTurn);
   }
@@ -191,7 +273,7 @@ public class Board extends BoardLayout {
     @param charBoard Character AoA for ascii representation of board.
     */
   public Board(char[][] charBoard) throws BadAsciiBoardFormatException {
-    board = new GridSquareState[GRID_ROW_MAX + 1][GRID_COL_MAX + 1];
+    GridSquareState[][] board = new GridSquareState[GRID_ROW_MAX + 1][GRID_COL_MAX + 1];
     attackerMoves = new LinkedList<int []>();
     defenderMoves = new LinkedList<int []>();
     if (charBoard == null
@@ -214,6 +296,7 @@ public class Board extends BoardLayout {
       for (int c = 0; c < 11; ++c) {
         char square = charBoard[r][c];
         board[r][c] = BoardLoader.charToState(square);
+        putSquare(squareIndex(r, c), board[r][c]);
         if (square == 'K') {
           kingRow = r;
           kingCol = c;
@@ -223,10 +306,70 @@ public class Board extends BoardLayout {
 
     attackers = BoardProcessor.findAllAttackers(board);
     defenders = BoardProcessor.findAllDefenders(board);
+    pieceHash = hashPieces();
+    resetTerms();
 
     initializeTimers(TIMER_INITIAL, TIMER_INITIAL, TIMER_APPEND, attackerTurn);
   }
 
+  /**
+    Computes the Zobrist hash of the pieces from scratch.
+   */
+  private long hashPieces() {
+    long hash = 0;
+    for (int r = 0; r <= GRID_ROW_MAX; ++r) {
+      for (int c = 0; c <= GRID_COL_MAX; ++c) {
+        hash ^= Zobrist.pieceKey(stateAt(squareIndex(r, c)), r, c);
+      }
+    }
+
+    return hash;
+  }
+
+  /**
+    Computes the evaluation terms from scratch.
+   */
+  private void resetTerms() {
+    material = defenders.size() - attackers.size();
+    kingDistance = cornerDistance(kingRow, kingCol);
+  }
+
+  /**
+    Returns the distance of a square to its nearest corner.
+
+    @param row The row of the square.
+    @param col The column of the square.
+   */
+  private static double cornerDistance(int row, int col) {
+    double vdistance = Math.abs(row - (row <= 5 ? 0 : 10));
+    double hdistance = Math.abs(col - (col <= 5 ? 0 : 10));
+    return Math.sqrt(vdistance * vdistance + hdistance * hdistance);
+  }
+
+  /**
+    Brings the evaluation terms up to date for a square changing state.
+    Every change to a square comes through here, so a term that can be
+    updated from the change alone belongs here too.
+
+    @param index The square index.
+    @param old The old state of the square.
+    @param state The new state of the square.
+   */
+  private void updateTerms(int index, GridSquareState old, GridSquareState state) {
+    material += materialWeight(state) - materialWeight(old);
+    if (state == GridSquareState.KING) {
+      kingDistance = CORNER_DISTANCE[index];
+    }
+  }
+
+  /** Returns what a piece counts for in the material balance. */
+  private static int materialWeight(GridSquareState state) {
+    if (state == GridSquareState.ATTACKER) {
+      return -1;
+    }
+    return state == GridSquareState.EMPTY ? 0 : 1;
+  }
+
   /**
     Initialize the timers.
 
@@ -236,7 +379,11 @@ public class Board extends BoardLayout {
     @param stAtt Whether to start the attacker's (true) or defender's (false) timer.
    */
   private void initializeTimers(int curAtt, int curDef, int append, boolean stAtt) {
+    // Let go of any timers from an earlier call.
+    killTimers();
+
     // Initialize timers.
+    timeControl = curAtt > 0 || curDef > 0;
     attackerTimer = new BoardTimer(curAtt, append);
     defenderTimer = new BoardTimer(curDef, append);
 
@@ -247,33 +394,70 @@ public class Board extends BoardLayout {
       defenderTimer.start();
     }
 
-    // Check to make sure neither timer hits zero.
-    final java.util.Timer timer = new java.util.Timer();
-    timer.scheduleAtFixedRate(new java.util.TimerTask() {
-      public void run() {
-        // If paused, return.
-        if (isPaused()) {
-          return;
-        }
+    if (gameOver) {
+      killTimers();
+    } else {
+      scheduleFlagFall();
+    }
+  }
 
-        // If the game is over, kill the timers, kill this timer, and return.
-        if (isGameOver()) {
-          attackerTimer.kill();
-          defenderTimer.kill();
-          timer.cancel();
-          return;
-        }
+  /**
+    Set the flag fall task for the side to move, replacing any other. There
+    is none while the game is over or the side's timer is stopped, nor on a
+    board without a time control.
+   */
+  private void scheduleFlagFall() {
+    ClockScheduler.cancel(flagFall);
+    flagFall = null;
+
+    boolean attacker = attackerTurn;
+    BoardTimer timer = attacker ? attackerTimer : defenderTimer;
+    if (gameOver || !timeControl || timer == null || !timer.isCountingDown()) {
+      return;
+    }
+    flagFall = ClockScheduler.after(() -> flagFall(attacker), timer.getTimeRemainingMillis());
+  }
 
-        // If either timer hits zero, end the game.
-        if (isAttackerTurn() && attackerTimer.getTimeRemaining() <= 0) {
-          gameOver = true;
-          attackerTurn = false;
-        } else if (!isAttackerTurn() && defenderTimer.getTimeRemaining() <= 0) {
-          gameOver = true;
-          attackerTurn = true;
-        }
-      }
-    }, 1, 500);
+  /**
+    End the game if the side's timer has run out. This runs on the clock
+    thread.
+
+    @param attacker The side whose flag fell.
+   */
+  private void flagFall(boolean attacker) {
+    BoardTimer timer = attacker ? attackerTimer : defenderTimer;
+    if (gameOver || attackerTurn != attacker || timer == null || !timer.isCountingDown()) {
+      // The turn changed or the timers stopped as the task came due.
+      return;
+    }
+
+    long remaining = timer.getTimeRemainingMillis();
+    if (remaining > 0) {
+      // Due a little early; wait out the rest.
+      flagFall = ClockScheduler.after(() -> flagFall(attacker), remaining);
+      return;
+    }
+
+    // The side to move loses on time. The winner is set before gameOver, so
+    // a thread that sees the game over sees the winner too.
+    attackerTurn = !attacker;
+    setGameOver(true);
+  }
+
+  /**
+    Stop the timers for good and take their tasks off the shared
+    ClockScheduler. This happens by itself once the game is over; call it
+    to let go of a board whose game is abandoned.
+   */
+  public void killTimers() {
+    ClockScheduler.cancel(flagFall);
+    flagFall = null;
+    if (attackerTimer != null) {
+      attackerTimer.kill();
+    }
+    if (defenderTimer != null) {
+      defenderTimer.kill();
+    }
   }
 
   /**
@@ -287,6 +471,7 @@ public class Board extends BoardLayout {
     if (defenderTimer != null) {
       defenderTimer.stop(true);
     }
+    scheduleFlagFall();
   }
 
   /**
@@ -299,6 +484,7 @@ public class Board extends BoardLayout {
       if (timer != null) {
         timer.start();
       }
+      scheduleFlagFall();
     }
   }
 
@@ -366,7 +552,7 @@ public class Board extends BoardLayout {
     GridSquareState[][] ret = new GridSquareState[11][11];
     for (int i = 0; i <= GRID_ROW_MAX; ++i) {
       for (int j = 0; j <= GRID_COL_MAX; ++j) {
-        ret[i][j] = board[i][j];
+        ret[i][j] = stateAt(squareIndex(i, j));
       }
     }
 
@@ -387,6 +573,62 @@ public class Board extends BoardLayout {
     return defensive;
   }
 
+  /**
+    Forget all defensive board positions. Used when a piece is captured.
+   */
+  void clearDefensiveBoardPositions() {
+    if (recording != null && !defensive.isEmpty()) {
+      recording.defensiveBefore = new HashMap<String, Integer>(defensive);
+    }
+    defensive.clear();
+  }
+
+  /**
+    Set the usage count of a defensive board position.
+
+    @param position The defensive board position.
+    @param times The number of times it has been used.
+   */
+  void putDefensiveBoardPosition(String position, int times) {
+    if (recording != null) {
+      recording.defensiveKey = position;
+      recording.defensivePrev = defensive.get(position);
+    }
+    defensive.put(position, times);
+  }
+
+  /**
+    Returns the Zobrist hash of the position, matching Zobrist.hash(this).
+    Unlike Zobrist.hash(), this does not need to look at every square.
+   */
+  public long getHash() {
+    long hash = pieceHash;
+    if (attackerTurn) {
+      hash ^= Zobrist.attackerTurnKey();
+    }
+    if (gameOver) {
+      hash ^= Zobrist.gameOverKey();
+    }
+
+    return hash;
+  }
+
+  /**
+    Returns the number of defending pieces, the king among them, less the
+    number of attackers.
+   */
+  public int getMaterial() {
+    return material;
+  }
+
+  /**
+    Returns the king's distance to its nearest corner, the same as
+    Minimax.kingBestCorner() while the king is on the board.
+   */
+  public double getKingDistance() {
+    return kingDistance;
+  }
+
   /**
     Return the king's row.
    */
@@ -438,6 +680,10 @@ public class Board extends BoardLayout {
         defenderTimer.start();
       }
     }
+
+    if (attackerTimer != null || defenderTimer != null) {
+      scheduleFlagFall();
+    }
   }
 
   /**
@@ -468,6 +714,11 @@ public class Board extends BoardLayout {
    */
   public void setGameOver(boolean turn) {
     gameOver = turn;
+
+    // The clocks stop with the game.
+    if (turn && (attackerTimer != null || defenderTimer != null)) {
+      killTimers();
+    }
   }
 
   /**
@@ -558,15 +809,7 @@ public class Board extends BoardLayout {
     @return Whether or not the square is a corner.
     */
   public boolean inCornerLocation(int row, int col) {
-    for (int i = 0; i < CORNER_SQUARE_POSITIONS.length; i++) {
-      int cornerRow = CORNER_SQUARE_POSITIONS[i][0];
-      int cornerCol = CORNER_SQUARE_POSITIONS[i][1];
-      if (row == cornerRow && col == cornerCol) {
-        return true;
-      }
-    }
-
-    return false;
+    return inBounds(row, col) && BitBoard.isCorner(squareIndex(row, col));
   }
 
   /**
@@ -578,15 +821,7 @@ public class Board extends BoardLayout {
     @return Whether or not the square is special.
     */
   public boolean inSpecialLocation(int row, int col) {
-    for (int i = 0; i < SPECIAL_SQUARE_POSITIONS.length; i++) {
-      int specialRow = SPECIAL_SQUARE_POSITIONS[i][0];
-      int specialCol = SPECIAL_SQUARE_POSITIONS[i][1];
-      if (row == specialRow && col == specialCol) {
-        return true;
-      }
-    }
-
-    return false;
+    return inBounds(row, col) && BitBoard.isSpecial(squareIndex(row, col));
   }
 
   /**
@@ -620,7 +855,7 @@ public class Board extends BoardLayout {
     @return Whether the game is a draw.
     */
   public boolean isDraw() {
-    return movesWoCapture >= maxMovesWoCapture;
+    return movesWoCapture >= MAX_MOVES_WO_CAPTURE;
   }
 
   /**
@@ -629,12 +864,145 @@ public class Board extends BoardLayout {
   private void removeSelFromPieceList(
       LinkedList<int []> pieceList, int remRow, int remCol) {
     Iterator<int []> lit = pieceList.iterator();
+    int index = 0;
     while (lit.hasNext()) {
       int [] pt = lit.next();
       if (pt[0] == remRow && pt[1] == remCol) {
         lit.remove();
+        if (recording != null) {
+          recording.addListOp(UndoRecord.LIST_REMOVE, pieceList == attackers,
+              index, squareIndex(remRow, remCol));
+        }
         break;
       }
+      ++index;
+    }
+  }
+
+  /**
+    Change the state of a square, keeping the hash and any undo record up
+    to date.
+
+    @param row The row of the square.
+    @param col The column of the square.
+    @param state The new state of the square.
+   */
+  private void setSquare(int row, int col, GridSquareState state) {
+    int index = squareIndex(row, col);
+    GridSquareState old = stateAt(index);
+    if (recording != null) {
+      recording.addSquare(index, old);
+    }
+    pieceHash ^= Zobrist.pieceKey(old, row, col) ^ Zobrist.pieceKey(state, row, col);
+    updateTerms(index, old, state);
+    putSquare(index, state);
+  }
+
+  /**
+    Change the state of a square in the bitboards only.
+
+    @param index The square index.
+    @param state The new state of the square.
+   */
+  private void putSquare(int index, GridSquareState state) {
+    attackerBits.clear(index);
+    defenderBits.clear(index);
+    kingBits.clear(index);
+    switch (state) {
+      case ATTACKER:
+        attackerBits.set(index);
+        break;
+      case DEFENDER:
+        defenderBits.set(index);
+        break;
+      case KING:
+        kingBits.set(index);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+    Returns the state of a square from the bitboards.
+
+    @param index The square index.
+   */
+  private GridSquareState stateAt(int index) {
+    if (attackerBits.get(index)) {
+      return GridSquareState.ATTACKER;
+    }
+    if (defenderBits.get(index)) {
+      return GridSquareState.DEFENDER;
+    }
+
+    return kingBits.get(index) ? GridSquareState.KING : GridSquareState.EMPTY;
+  }
+
+  /**
+    Returns the squares holding attackers. The set belongs to the board and
+    must not be changed.
+   */
+  BitBoard attackerBits() {
+    return attackerBits;
+  }
+
+  /**
+    Returns the squares holding defenders, not counting the king. The set
+    belongs to the board and must not be changed.
+   */
+  BitBoard defenderBits() {
+    return defenderBits;
+  }
+
+  /**
+    Returns the square holding the king. The set belongs to the board and
+    must not be changed.
+   */
+  BitBoard kingBits() {
+    return kingBits;
+  }
+
+  /** Returns a scratch set for the pieces of the side to move. */
+  BitBoard ownScratch() {
+    return ownScratch;
+  }
+
+  /** Returns a scratch set for the occupied squares. */
+  BitBoard occupiedScratch() {
+    return occupiedScratch;
+  }
+
+  /** Returns a scratch set for the squares a piece can move to. */
+  BitBoard targetScratch() {
+    return targetScratch;
+  }
+
+  /** Returns a one move buffer for finding out whether there is any move. */
+  int[] probeBuffer() {
+    return probeBuffer;
+  }
+
+  /**
+    Returns the squares holding defenders or the king.
+   */
+  BitBoard defendingBits() {
+    return defenderBits.copy().or(kingBits);
+  }
+
+  /**
+    Returns the squares holding any piece.
+   */
+  BitBoard occupiedBits() {
+    return attackerBits.copy().or(defenderBits).or(kingBits);
+  }
+
+  /**
+    Count a captured piece in the undo record, if there is one.
+   */
+  private void recordCapture() {
+    if (recording != null) {
+      ++recording.captures;
     }
   }
 
@@ -646,12 +1014,16 @@ public class Board extends BoardLayout {
   */
   private void processMove(int row, int col) throws GridOutOfBoundsException {
     // If there is no conflict, move the piece, deselect, and end turn.
-    board[row][col] = square(selRow, selCol);
-    board[selRow][selCol] = GridSquareState.EMPTY;
+    setSquare(row, col, square(selRow, selCol));
+    setSquare(selRow, selCol, GridSquareState.EMPTY);
 
     LinkedList<int []> pieceList = isAttackerTurn() ? attackers : defenders;
     removeSelFromPieceList(pieceList, selRow, selCol);
     pieceList.add(new int [] {row, col});
+    if (recording != null) {
+      recording.addListOp(UndoRecord.LIST_APPEND, pieceList == attackers,
+          pieceList.size() - 1, squareIndex(row, col));
+    }
 
     // If piece is king and no conflict, update king location.
     if (square(row, col).isKing()) {
@@ -662,7 +1034,10 @@ public class Board extends BoardLayout {
     // Track the move.
     LinkedList<int []> moves = isAttackerTurn() ? attackerMoves : defenderMoves;
     if (moves.size() > 5) {
-      moves.removeFirst();
+      int [] dropped = moves.removeFirst();
+      if (recording != null) {
+        recording.droppedHistory = dropped;
+      }
       moves.add(new int [] {row, col, selRow, selCol});
     } else {
       moves.add(new int [] {row, col, selRow, selCol});
@@ -754,6 +1129,142 @@ public class Board extends BoardLayout {
     return true;
   }
 
+  /**
+    Check whether a packed move is legal for the side to move, without
+    making it.
+
+    @param move The packed move (see BoardLayout.packMove).
+
+    @return Whether or not the move is legal.
+   */
+  public boolean isLegalMove(int move) {
+    int from = moveFrom(move);
+    int to = moveTo(move);
+    int fromRow = from / 11;
+    int fromCol = from % 11;
+    int toRow = to / 11;
+    int toCol = to % 11;
+
+    // The piece must belong to the side to move, and only one axis may differ.
+    GridSquareState piece = safeSquare(fromRow, fromCol);
+    if (gameOver || (isAttackerTurn() ? !piece.isAttacking() : !piece.isDefending())
+        || ((toRow != fromRow) == (toCol != fromCol))
+        || toRow < 0 || toRow > GRID_ROW_MAX || toCol < 0 || toCol > GRID_COL_MAX) {
+      return false;
+    }
+
+    try {
+      return BoardProcessor.isValidMove(this, toRow, toCol, fromRow, fromCol);
+    } catch (GridOutOfBoundsException gx) {
+      return false;
+    }
+  }
+
+  /**
+    Make a move in place, following all of the same rules as select() and
+    move(), and return what is needed to take it back with unmakeMove().
+
+    This is meant for boards without timers, such as the copies the AI
+    searches, because changing turns starts and stops the timers and that
+    cannot be taken back.
+
+    @param move The packed move (see BoardLayout.packMove).
+
+    @return The undo record, or null if the move is not legal. The board is
+      unchanged when the move is not legal.
+   */
+  public UndoRecord makeMove(int move) {
+    if (!isLegalMove(move)) {
+      return null;
+    }
+
+    UndoRecord undo = new UndoRecord(move);
+    undo.attackerTurn   = attackerTurn;
+    undo.gameOver       = gameOver;
+    undo.movesWoCapture = movesWoCapture;
+    undo.kingRow        = kingRow;
+    undo.kingCol        = kingCol;
+    undo.selRow         = selRow;
+    undo.selCol         = selCol;
+    undo.pieceHash      = pieceHash;
+    undo.material       = material;
+    undo.kingDistance   = kingDistance;
+
+    int from = moveFrom(move);
+    int to = moveTo(move);
+    recording = undo;
+    try {
+      selRow = from / 11;
+      selCol = from % 11;
+      move(to / 11, to % 11);
+    } catch (GridOutOfBoundsException gx) {
+      // Not possible, the move was checked above.
+    } finally {
+      recording = null;
+    }
+
+    return undo;
+  }
+
+  /**
+    Take back the last move made with makeMove(). Moves must be taken back
+    in the reverse order they were made.
+
+    @param undo The undo record returned by makeMove().
+   */
+  public void unmakeMove(UndoRecord undo) {
+    // Squares, newest change first.
+    GridSquareState[] states = GridSquareState.values();
+    for (int i = undo.squareCount - 1; i >= 0; --i) {
+      putSquare(undo.squares[i] >> 2, states[undo.squares[i] & 3]);
+    }
+
+    // Piece lists, newest change first.
+    for (int i = undo.listOpCount - 1; i >= 0; --i) {
+      int op = undo.listOps[i];
+      LinkedList<int []> pieceList = ((op >> 15) & 1) == 1 ? attackers : defenders;
+      int square = op & 0x7f;
+      if ((op >> 16) == UndoRecord.LIST_APPEND) {
+        pieceList.removeLast();
+      } else {
+        pieceList.add((op >> 7) & 0xff, new int [] {square / 11, square % 11});
+      }
+    }
+
+    // Move history.
+    LinkedList<int []> moves = undo.attackerTurn ? attackerMoves : defenderMoves;
+    moves.removeLast();
+    if (undo.droppedHistory != null) {
+      moves.addFirst(undo.droppedHistory);
+    }
+
+    // Defensive board positions.
+    if (undo.defensiveBefore != null) {
+      defensive.putAll(undo.defensiveBefore);
+    }
+    if (undo.defensiveKey != null) {
+      if (undo.defensivePrev == null) {
+        defensive.remove(undo.defensiveKey);
+      } else {
+        defensive.put(undo.defensiveKey, undo.defensivePrev);
+      }
+    }
+
+    attackerTurn   = undo.attackerTurn;
+    if (gameOver != undo.gameOver) {
+      // Only written when it changes, as the write is a volatile one.
+      gameOver = undo.gameOver;
+    }
+    movesWoCapture = undo.movesWoCapture;
+    kingRow        = undo.kingRow;
+    kingCol        = undo.kingCol;
+    selRow         = undo.selRow;
+    selCol         = undo.selCol;
+    pieceHash      = undo.pieceHash;
+    material       = undo.material;
+    kingDistance   = undo.kingDistance;
+  }
+
   /**
      Check to see if there is any captures as a result of a move.
 
@@ -764,10 +1275,7 @@ public class Board extends BoardLayout {
     boolean captured = false;
 
     // Try the basic captures.
-    captured |= basicCapture(row, column, row - 2, column);
-    captured |= basicCapture(row, column, row + 2, column);
-    captured |= basicCapture(row, column, row, column - 2);
-    captured |= basicCapture(row, column, row, column + 2);
+    captured |= basicCapture(row, column);
 
     captured |= kingCapture();
     captured |= shieldWallCapture(row, column);
@@ -783,7 +1291,8 @@ public class Board extends BoardLayout {
   private boolean kingCapture() throws GridOutOfBoundsException {
     boolean captured = BoardProcessor.kingCapture(this);
     if (captured) {
-      board[kingRow][kingCol] = GridSquareState.EMPTY;
+      setSquare(kingRow, kingCol, GridSquareState.EMPTY);
+      recordCapture();
       removeSelFromPieceList(defenders, kingRow, kingCol);
       kingRow = -1;
       kingCol = -1;
@@ -899,12 +1408,16 @@ public class Board extends BoardLayout {
 
     // Change captured pieces to empty.
     if (shieldWall) {
+      if (recording != null) {
+        recording.shieldWall = true;
+      }
       curRow -= rowDelta;
       curCol -= colDelta;
       while (row != curRow || col != curCol) {
-        if (!board[curRow][curCol].isKing()) {
-          board[curRow][curCol] = GridSquareState.EMPTY;
-          removeSelFromPieceList(defenders, curRow, curCol);
+        if (!kingBits.get(squareIndex(curRow, curCol))) {
+          setSquare(curRow, curCol, GridSquareState.EMPTY);
+          recordCapture();
+          removeSelFromPieceList(shieldAttack ? defenders : attackers, curRow, curCol);
         }
         curRow -= rowDelta;
         curCol -= colDelta;
@@ -943,98 +1456,39 @@ public class Board extends BoardLayout {
   }
 
   /**
-    Check to see if there is a basic capture between two pieces.
-
-    @param rowA The row of the first piece.
-    @param colA The second of the second piece.
-    @param rowB The row of the second piece.
-    @param colB The column of the second piece.
-  */
-  private boolean basicCapture(int rowA, int colA, int rowB, int colB) {
-    // Make sure the two pieces differ by exactly two on one axis
-    // and that the other axis is unchanged
-    if ((Math.abs(rowA - rowB) != 2 || colA != colB)
-        && (Math.abs(colA - colB) != 2 || rowA != rowB)) {
-      return false;
-    }
-
-    // Retrieve the state of the squares. If they are out
-    // of bounds, EMPTY will be returned.
-    GridSquareState pieceA = safeSquare(rowA, colA);
-    GridSquareState pieceB = safeSquare(rowB, colB);
-    
-    // Retrieve the state of the piece that could be captured.
-    GridSquareState pieceC;
-    int rowC;
-    int colC;
-    if (rowA == rowB) {
-      rowC = rowA;
-      colC = colA < colB ? colA + 1 : colB + 1;
-    } else {
-      rowC = rowA < rowB ? rowA + 1 : rowB + 1;
-      colC = colA;
-    }
-    pieceC = safeSquare(rowC, colC);
+    Capture the enemy pieces sandwiched between the piece that just moved and
+    another piece of its side (or an empty throne or corner).
 
-    // Test to see if pieceC can be captured.
-    boolean specialA = inSpecialLocation(rowA, colA);
-    boolean specialB = inSpecialLocation(rowB, colB);
-    boolean captured = basicCaptureTest(pieceA, pieceB, pieceC, specialA, specialB);
+    @param row The row of the piece that moved.
+    @param col The column of the piece that moved.
 
-    // If captured is greater than zero, capture the square.
-    if (captured) {
-      board[rowC][colC] = GridSquareState.EMPTY;
-      LinkedList<int []> pieceList = isAttackerTurn() ? defenders : attackers;
-      removeSelFromPieceList(pieceList, rowC, colC);
+    @return Whether or not anything was captured.
+  */
+  private boolean basicCapture(int row, int col) {
+    // The king can't be captured this way, only defenders and attackers.
+    boolean attacking = isAttackerTurn();
+    BitBoard victims = attacking ? defenderBits : attackerBits;
+    BitBoard hostile = attacking ? attackerBits.copy() : defendingBits();
+    hostile.or(BitBoard.special().andNot(occupiedBits()));
+
+    BitBoard captured = new BitBoard();
+    BitBoard moved = BitBoard.square(squareIndex(row, col));
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      BitBoard victim = moved.copy().shift(dir).and(victims);
+      if (victim.copy().shift(dir).intersects(hostile)) {
+        captured.or(victim);
+      }
     }
-    
-    return captured;
-  }
 
-  /**
-     Test to see if two pieces (or a piece and an empty special square) can capture
-     a piece.
-     
-     @param pieceA One of the two capturing pieces (must be EMPTY for special captures).
-     @param pieceB One of the two capturing pieces (must be EMPTY for special captures).
-     @param pieceC The piece to try to capture.
-     @param specialA Whether or not A is a special square.
-     @param specialB Whether or not B is a special square.
-   */
-  private boolean basicCaptureTest(GridSquareState pieceA, GridSquareState pieceB,
-      GridSquareState pieceC, boolean specialA, boolean specialB) {
-    
-    // Two attackers capturing a defender.
-    if (pieceA.isAttacking() && pieceB.isAttacking() && pieceC.isDefender()) {
-      return true;
-    }
-    
-    // Two defenders or a defender and king capturing an attacker.
-    if (pieceA.isDefending() && pieceB.isDefending() && pieceC.isAttacking()) {
-      return true; 
-    }
-    
-    // An attacker and a special capturing a defender.
-    if (pieceA.isEmpty() && specialA && pieceB.isAttacking() && pieceC.isDefender()) {
-      return true;
-    }
-      
-    // A defender and a special or a king and a special capturing an attacker.
-    if (pieceA.isEmpty() && specialA && pieceB.isDefending() && pieceC.isAttacking()) {
-      return true;
-    }
-    
-    // An attacker and a special capturing a defender.
-    if (pieceB.isEmpty() && specialB && pieceA.isAttacking() && pieceC.isDefender()) {
-      return true;
-    }
-    
-    // A defender and a special or a king and a special capturing an attacker.
-    if (pieceB.isEmpty() && specialB && pieceA.isDefending() && pieceC.isAttacking()) {
-      return true;
+    // Remove the captured pieces.
+    LinkedList<int []> pieceList = attacking ? defenders : attackers;
+    for (int sq = captured.nextSetBit(0); sq >= 0; sq = captured.nextSetBit(sq + 1)) {
+      setSquare(sq / 11, sq % 11, GridSquareState.EMPTY);
+      recordCapture();
+      removeSelFromPieceList(pieceList, sq / 11, sq % 11);
     }
 
-    return false;
+    return !captured.isEmpty();
   }
 
   /**
@@ -1044,12 +1498,11 @@ public class Board extends BoardLayout {
     @param column Column of desired square.
    */
   public GridSquareState square(int row, int column) throws GridOutOfBoundsException {
-    if (row > GRID_ROW_MAX || column > GRID_COL_MAX
-        || row < 0 || column < 0) {
+    if (!inBounds(row, column)) {
       throw new GridOutOfBoundsException();
     }
 
-    return board[row][column];
+    return stateAt(squareIndex(row, column));
   }
 
   /**
@@ -1060,14 +1513,16 @@ public class Board extends BoardLayout {
     @param column Column of desired square.
   */
   protected GridSquareState safeSquare(int row, int column) {
-    GridSquareState state = GridSquareState.EMPTY;
+    return inBounds(row, column) ? stateAt(squareIndex(row, column)) : GridSquareState.EMPTY;
+  }
 
-    try {
-      state = square(row, column);
-    } catch (GridOutOfBoundsException exception) {
-      // Quietly ignore. Treat as default (empty).
-    }
+  /**
+    Returns whether the row and column are on the board.
 
-    return state;
+    @param row Row of the square.
+    @param column Column of the square.
+  */
+  static boolean inBounds(int row, int column) {
+    return row >= 0 && row <= GRID_ROW_MAX && column >= 0 && column <= GRID_COL_MAX;
   }
 }
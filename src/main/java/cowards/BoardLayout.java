@@ -48,6 +48,22 @@ public class BoardLayout {
   public static int GRID_ROW_MAX = 10;
   public static int GRID_COL_MAX = 10;
 
+  /**
+    The number of squares on the board.
+   */
+  public static final int SQUARE_COUNT = 121;
+
+  /**
+    Packed value standing in for "no move".
+   */
+  public static final int NO_MOVE = -1;
+
+  /**
+    The most moves any position can have. Every move ends on an empty square,
+    and a square can only be reached from four directions.
+   */
+  public static final int MAX_MOVES = 4 * SQUARE_COUNT;
+
   public static final char[][] INITIAL_BOARD = new char[][]{
       {' ', ' ', ' ', 'A', 'A', 'A', 'A', 'A', ' ', ' ', ' '},
       {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
@@ -76,4 +92,57 @@ public class BoardLayout {
     {10, 0},
     {10, 10},
   };
+
+  /**
+    Returns the index (0 to 120) of the square at the row and column provided.
+
+    @param row The row of the square.
+    @param col The column of the square.
+   */
+  public static int squareIndex(int row, int col) {
+    return row * 11 + col;
+  }
+
+  /**
+    Packs a move into a single int. The from square is stored in the upper
+    bits and the to square in the lower eight bits.
+
+    @param toRow The row the piece moves to.
+    @param toCol The column the piece moves to.
+    @param fromRow The row the piece moves from.
+    @param fromCol The column the piece moves from.
+   */
+  public static int packMove(int toRow, int toCol, int fromRow, int fromCol) {
+    return (squareIndex(fromRow, fromCol) << 8) | squareIndex(toRow, toCol);
+  }
+
+  /**
+    Returns the square index a packed move starts from.
+
+    @param move The packed move.
+   */
+  public static int moveFrom(int move) {
+    return move >>> 8;
+  }
+
+  /**
+    Returns the square index a packed move ends on.
+
+    @param move The packed move.
+   */
+  public static int moveTo(int move) {
+    return move & 0xff;
+  }
+
+  /**
+    Unpacks a move into the {toRow, toCol, fromRow, fromCol} format used by
+    the move history and the AI.
+
+    @param move The packed move.
+   */
+  public static int[] unpackMove(int move) {
+    int to = moveTo(move);
+    int from = moveFrom(move);
+    return new int[] {to / 11, to % 11, from / 11, from % 11};
+  }
 }
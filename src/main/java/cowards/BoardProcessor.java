@@ -9,6 +9,12 @@ public class BoardProcessor extends BoardLayout {
    */
   private static final int maxRepeatMoves = 6;
 
+  /** Row steps for NORTH, SOUTH, WEST and EAST. */
+  private static final int[] ROW_STEP = {-1, 1, 0, 0};
+
+  /** Column steps for NORTH, SOUTH, WEST and EAST. */
+  private static final int[] COL_STEP = {0, 0, -1, 1};
+
   /**
     Check if the current opposing player loses on account of repeat moves.
 
@@ -68,6 +74,20 @@ public class BoardProcessor extends BoardLayout {
   public static boolean isPathClear(
       Board board, int row, int col, int selRow, int selCol)
       throws GridOutOfBoundsException {
+    // A straight path is the stretch of the ray from the selected square up
+    // to and including the destination.
+    if ((row == selRow) != (col == selCol)) {
+      int from = squareIndex(selRow, selCol);
+      int to = squareIndex(row, col);
+      int dir = row < selRow ? BitBoard.NORTH : row > selRow ? BitBoard.SOUTH
+          : col < selCol ? BitBoard.WEST : BitBoard.EAST;
+      if (!Board.inBounds(row, col) || !Board.inBounds(selRow, selCol)) {
+        throw new GridOutOfBoundsException();
+      }
+      BitBoard path = BitBoard.path(from, to, dir);
+      return !path.intersects(board.occupiedBits());
+    }
+
     // Determine the top, bottom, left, and right.
     // Either top and bottom or left and right will be the same.
     int top    = (row < selRow) ? row    : selRow;
@@ -99,22 +119,14 @@ public class BoardProcessor extends BoardLayout {
     @return Whether or not king was captured.
    */
   public static boolean kingCapture(Board board) throws GridOutOfBoundsException {
-    boolean captured = false;
-
-    int kingRow = board.getKingRow();
-    int kingCol = board.getKingCol();
-    //Check if king is not near edge of board.
-    if (kingRow != 0 && kingRow != 10 && kingCol != 0 && kingCol != 10) {
-      // Check if king is surrounded by attackers.
-      if (board.square(kingRow - 1, kingCol).isAttacking()
-            && board.square(kingRow + 1, kingCol).isAttacking()
-            && board.square(kingRow, kingCol - 1).isAttacking()
-            && board.square(kingRow, kingCol + 1).isAttacking()) {
-        captured = true;
-      }
+    // The king can't be captured against the edge of the board.
+    BitBoard king = board.kingBits();
+    if (king.isEmpty() || king.touchesEdge()) {
+      return false;
     }
 
-    return captured;
+    // Check if king is surrounded by attackers.
+    return BitBoard.neighbors(king.lowest()).andNot(board.attackerBits()).isEmpty();
   }
 
   /**
@@ -152,74 +164,20 @@ public class BoardProcessor extends BoardLayout {
     @return Whether or not the defending side is surrounded.
    */
   public static boolean isSurrounded(Board board) {
-    // Perform a flood fill. If exited the board, return false.
-    boolean[][] fill = new boolean[GRID_ROW_MAX + 1][GRID_COL_MAX + 1];
-    if (!surroundFloodFill(board, fill, board.getKingRow(), board.getKingCol())) {
+    if (board.kingBits().isEmpty()) {
       return false;
     }
 
-    // Make sure all defenders (including the king) are in a filled square.
-    for (int r = 0; r < fill.length; r++) {
-      for (int c = 0; c < fill[r].length; c++) {
-        if (!fill[r][c] && board.safeSquare(r, c).isDefending()) {
-          return false;
-        }
-      }
-    }
-
-    // Surrounded.
-    return true;
-  }
-
-  /**
-    Perform a flood fill. Attackers will be treated as barriers. If the fill attempts
-    to leave the board, this method will exit without completing the fill.
-
-    @param board The board being processed.
-    @param fill The fill state of each square.
-    @param row The current row.
-    @param col The current column.
-
-    @return Whether or not the flood fill completed without exiting the board.
-   */
-  private static boolean surroundFloodFill(Board board, boolean[][] fill, int row, int col) {
-    // Test the current square.
-    try {
-      // If the square is already filled, nothing to do.
-      if (fill[row][col]) {
-        return true;
-      }
-
-      // Treat attacking pieces as barriers.
-      if (!board.square(row, col).isAttacking()) {
-        // Fill the square.
-        fill[row][col] = true;
-
-        // Check the four adjancent squares clockwise, starting at the top.
-        // If any of them exit the board, propigate the failure.
-        if (!surroundFloodFill(board, fill, row - 1, col)) {
-          return false;
-        }
-        if (!surroundFloodFill(board, fill, row, col + 1)) {
-          return false;
-        }
-        if (!surroundFloodFill(board, fill, row + 1, col)) {
-          return false;
-        }
-        if (!surroundFloodFill(board, fill, row, col - 1)) {
-          return false;
-        }
-      }
-    } catch (ArrayIndexOutOfBoundsException aoobex) {
-      // Exited the board.
-      return false;
-    } catch (GridOutOfBoundsException goobex) {
-      // Exited the board.
+    // Flood fill from the king, treating attackers as barriers. If the fill
+    // reaches the edge, it could have left the board.
+    BitBoard passable = BitBoard.all().andNot(board.attackerBits());
+    BitBoard fill = board.kingBits().copy().floodFill(passable);
+    if (fill.touchesEdge()) {
       return false;
     }
 
-    // So far, the fill has stayed within the board.
-    return true;
+    // Make sure all defenders (including the king) are in a filled square.
+    return board.defendingBits().andNot(fill).isEmpty();
   }
 
   /**
@@ -277,49 +235,54 @@ public class BoardProcessor extends BoardLayout {
     @return Whether or not the king is guarded.
    */
   public static boolean isKingGuarded(Board board) {
-    // Perform a flood fill.
-    boolean[][] fill = new boolean[GRID_ROW_MAX + 1][GRID_COL_MAX + 1];
-    
-    guardFloodFill(board, fill, board.getKingRow(), board.getKingCol());
+    BitBoard fill = new BitBoard();
+    if (!board.kingBits().isEmpty()) {
+      // A defender with all four sides open can be captured (see
+      // capturableGuard), so it does not wall anything off.
+      BitBoard empty = BitBoard.all().andNot(board.occupiedBits());
+      BitBoard capturable = board.defenderBits().copy();
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        capturable.and(empty.copy().shift(dir));
+      }
+
+      // Flood fill from the king. Defenders and edges are barriers.
+      BitBoard passable = BitBoard.all().andNot(board.defenderBits()).or(capturable);
+      fill = board.kingBits().copy().floodFill(passable);
+    }
 
     // It may be the case that we flooded the entire board (in the case no attackers remain).
     // If the fort isn't solid, but the king is uncaptureable it is guarded (ie
     // attackers fewer than 2 pieces).
-    return isFortSolid(board, fill) || board.getAttackers().size() <= 2;
+    return !fill.intersects(board.attackerBits()) || board.attackerBits().count() <= 2;
   }
 
   /**
-    Perform a flood fill. Defenders and edges will be treated as barriers.
+    Returns whether the king is on the edge of the board or can reach it in
+    one move. From there the king may threaten a corner, so skipping a move
+    is not safe.
 
-    @param board The board being processed.
-    @param fill The fill state of each square.
-    @param row The current row.
-    @param col The current column.
+    @param board The board being checked.
 
-    @return Whether or not the flood fill completed without exiting the board.
+    @return Whether or not the king is close to escaping.
    */
-  private static void guardFloodFill(Board board, boolean[][] fill, int row, int col) {
-    // Test the current square.
-    if (!inBounds(new int[] {row, col})) {
-      return;
+  public static boolean isKingNearEscape(Board board) {
+    if (board.kingBits().isEmpty()) {
+      return false;
     }
 
-    // If the square is already filled, nothing to do.
-    if (fill[row][col]) {
-      return;
+    int king = BoardLayout.squareIndex(board.getKingRow(), board.getKingCol());
+    if (BitBoard.isEdge(king)) {
+      return true;
     }
 
-    // Treat uncapturable defending pieces as barriers.
-    if (!board.safeSquare(row, col).isDefender() || capturableGuard(board, row, col)) {
-      fill[row][col] = true;
-
-      // Check the four adjancent squares clockwise, starting at the top.
-      // If any of them exit the board, propagate the failure.
-      guardFloodFill(board, fill, row - 1, col);
-      guardFloodFill(board, fill, row, col + 1);
-      guardFloodFill(board, fill, row + 1, col);
-      guardFloodFill(board, fill, row, col - 1);
+    BitBoard occupied = board.occupiedBits();
+    BitBoard targets = new BitBoard();
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      if (targets.setToSlide(king, dir, occupied).touchesEdge()) {
+        return true;
+      }
     }
+    return false;
   }
 
   /**
@@ -330,51 +293,175 @@ public class BoardProcessor extends BoardLayout {
     @return Whether or not the there are moves available.
    */
   public static boolean areMovesAvailable(Board board) {
-    // Determine whose turn it is.
-    boolean attacking = board.isAttackerTurn();
+    // The generator stops as soon as the buffer is full, so one slot is
+    // enough to find out if there is any move at all.
+    return generateMoves(board, board.probeBuffer()) > 0;
+  }
 
-    // Iterate over each square.
-    for (int [] p : attacking ? board.getAttackers() : board.getDefenders()) {
-      // If the piece is the same side, check for moves.
-      if ((attacking && board.safeSquare(p[0], p[1]).isAttacking())
-          || (!attacking && board.safeSquare(p[0], p[1]).isDefending())) {
-        // Check to see if any of the four adjacent squares are empty.
-        // If any of the squares are empty, a move exists.
-        if (isEmpty(board, p[0] - 1, p[1])) {
-          return true;
+  /**
+    Generates the moves for the side to move. Each piece slides outward along
+    its row and column until it hits another piece or the edge of the board.
+    Pieces other than the king may pass over, but not stop on, the throne
+    and the corners.
+
+    The moves are packed (see BoardLayout.packMove) and written into the
+    buffer, and the sets the generator works in belong to the board, so
+    nothing is allocated. A buffer of MAX_MOVES always has room for
+    every move; a smaller buffer is filled and the rest of the moves are
+    skipped. Whether the game is over is not checked.
+
+    @param board The board being processed.
+    @param moves The buffer to write the moves into.
+
+    @return The number of moves written.
+   */
+  public static int generateMoves(Board board, int[] moves) {
+    BitBoard own = board.ownScratch();
+    BitBoard occupied = board.occupiedScratch();
+    BitBoard targets = board.targetScratch();
+    occupied.assign(board.attackerBits()).or(board.defenderBits()).or(board.kingBits());
+    if (board.isAttackerTurn()) {
+      own.assign(board.attackerBits());
+    } else {
+      own.assign(board.defenderBits()).or(board.kingBits());
+    }
+    int king = board.kingBits().lowest();
+    int count = 0;
+
+    for (int from = own.nextSetBit(0); from >= 0; from = own.nextSetBit(from + 1)) {
+      // Slide up, down, left and right. The moves along each line come out
+      // in square order, so the edges of the board are tried first.
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        targets.setToSlide(from, dir, occupied);
+        // Only the king may stop on the throne or a corner.
+        if (from != king) {
+          targets.andNotSpecial();
         }
-        if (isEmpty(board, p[0], p[1] - 1)) {
-          return true;
+        for (int to = targets.nextSetBit(0); to >= 0; to = targets.nextSetBit(to + 1)) {
+          if (count == moves.length) {
+            return count;
+          }
+          moves[count++] = (from << 8) | to;
         }
-        if (isEmpty(board, p[0] + 1, p[1])) {
+      }
+    }
+
+    return count;
+  }
+
+  /**
+    Returns whether a move would capture, without making it. This is meant
+    for putting captures first in the search, so it errs on the side of yes:
+    basic captures and king captures are found exactly, but any move to an
+    edge next to an opponent backed by one of the mover's pieces counts as a
+    possible shield wall capture.
+
+    @param board The board, before the move.
+    @param move The packed move, which must be legal.
+   */
+  public static boolean isCaptureMove(Board board, int move) {
+    int from = moveFrom(move);
+    int to = moveTo(move);
+    boolean attacking = board.isAttackerTurn();
+    BitBoard victims = attacking ? board.defenderBits() : board.attackerBits();
+    int row = to / 11;
+    int col = to % 11;
+
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      int victimRow = row + ROW_STEP[dir];
+      int victimCol = col + COL_STEP[dir];
+      if (!Board.inBounds(victimRow, victimCol)) {
+        continue;
+      }
+      int victim = squareIndex(victimRow, victimCol);
+
+      if (attacking && board.kingBits().get(victim)) {
+        if (isKingTrapped(board, victim, from, to)) {
           return true;
         }
-        if (isEmpty(board, p[0], p[1] + 1)) {
+        continue;
+      }
+      if (!victims.get(victim)) {
+        continue;
+      }
+
+      // Sandwiched against one of the mover's pieces or an empty special
+      // square.
+      int beyondRow = victimRow + ROW_STEP[dir];
+      int beyondCol = victimCol + COL_STEP[dir];
+      if (Board.inBounds(beyondRow, beyondCol)
+          && isHostileAfter(board, squareIndex(beyondRow, beyondCol), from)) {
+        return true;
+      }
+
+      // A possible shield wall, with the victim on the same edge as the move.
+      if (BitBoard.isEdge(to) && BitBoard.isEdge(victim)) {
+        int inward = inwardSquare(victimRow, victimCol);
+        if (inward >= 0 && inward != from && isOwn(board, inward)) {
           return true;
         }
       }
     }
-    // No moves.
+
     return false;
   }
 
+  /** Whether the side to move has a piece on the square. */
+  private static boolean isOwn(Board board, int square) {
+    return board.isAttackerTurn()
+        ? board.attackerBits().get(square)
+        : board.defenderBits().get(square) || board.kingBits().get(square);
+  }
+
   /**
-    Returns whether or not a square is empty. This is a convience method so that
-    GridOutOfBoundsException does not need to be interwined with the actual method
-    logic. Unlike safeSquare, this method will NOT treat out of bounds as empty.
+    Whether the square would be hostile to the opponent once the piece on
+    the from square has moved off it.
+   */
+  private static boolean isHostileAfter(Board board, int square, int from) {
+    if (square == from) {
+      return BitBoard.isSpecial(square);
+    }
+    if (isOwn(board, square)) {
+      return true;
+    }
 
-    @param board The board being processed.
-    @param row The row of the square to check.
-    @param col The column of the square to check.
+    return BitBoard.isSpecial(square)
+        && !board.attackerBits().get(square)
+        && !board.defenderBits().get(square)
+        && !board.kingBits().get(square);
+  }
 
-    @return Whether or not the square is empty.
+  /**
+    Whether the king would be surrounded once an attacker moves from one
+    square to another.
    */
-  private static boolean isEmpty(Board board, int row, int col) {
-    try {
-      return board.square(row, col).isEmpty();
-    } catch (GridOutOfBoundsException oobex) {
+  private static boolean isKingTrapped(Board board, int king, int from, int to) {
+    if (BitBoard.isEdge(king)) {
       return false;
     }
+
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      int sq = BitBoard.step(king, dir);
+      if (sq != to && (sq == from || !board.attackerBits().get(sq))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Returns the square one step in from an edge square, or -1 for corners. */
+  private static int inwardSquare(int row, int col) {
+    boolean rowEdge = row == 0 || row == GRID_ROW_MAX;
+    boolean colEdge = col == 0 || col == GRID_COL_MAX;
+    if (rowEdge == colEdge) {
+      return -1;
+    }
+
+    if (rowEdge) {
+      return squareIndex(row == 0 ? 1 : row - 1, col);
+    }
+    return squareIndex(row, col == 0 ? 1 : col - 1);
   }
 
   /** Returns a linked list containing the positions of every attacker. */
@@ -439,7 +526,7 @@ public class BoardProcessor extends BoardLayout {
     // If a piece has been captured, reset the defensive boards and return that
     // no game over state has been reached.
     if (capture) {
-      defensive.clear();
+      board.clearDefensiveBoardPositions();
       return false;
     }
     
@@ -455,7 +542,7 @@ public class BoardProcessor extends BoardLayout {
     }
 
     // Increment the number of times the position has been used. 
-    defensive.put(position, new Integer(times + 1));
+    board.putDefensiveBoardPosition(position, times + 1);
 
     // No game over state has been reached.
     return false;
@@ -471,16 +558,12 @@ public class BoardProcessor extends BoardLayout {
       number of defending pieces.
    */
   private static Map.Entry<String, Integer> defensivePosition(Board board) {
-    StringBuffer buff = new StringBuffer();
-    int count = 0;
-    for (int r = 0; r < GRID_ROW_MAX + 1; r++) {
-      for (int c = 0; c < GRID_COL_MAX + 1; c++) {
-        int bit = board.safeSquare(r, c).isDefending() ? 1 : 0;
-        count += bit;
-        buff.append(bit);
-      }
+    BitBoard defending = board.defendingBits();
+    StringBuffer buff = new StringBuffer(SQUARE_COUNT);
+    for (int i = 0; i < SQUARE_COUNT; i++) {
+      buff.append(defending.get(i) ? '1' : '0');
     }
-    return new AbstractMap.SimpleEntry<String, Integer>(buff.toString(), count);
+    return new AbstractMap.SimpleEntry<String, Integer>(buff.toString(), defending.count());
   }
 
   /**
@@ -1,13 +1,58 @@
 package cowards;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledFuture;
 
+/**
+  The clock of one side in the game.
+
+  By default the timer is tickless: it notes System.nanoTime() when it starts
+  and works the time remaining out when asked, to the millisecond, with no
+  task running in the background. The older ticking mode, where a task on
+  the ClockScheduler takes a second off once a second, can still be chosen
+  with setTickless(false).
+
+  Either way the time remaining reads in whole seconds, rounded up, so a
+  clock shows 00:01 until its last millisecond is gone.
+ */
 public class BoardTimer {
   /**
-    The time remaining on the timer.
+    Whether timers created from now on are tickless.
+   */
+  private static boolean ticklessDefault = true;
+
+  /**
+    Choose between tickless timers and timers that tick once a second, for
+    every timer created after the call.
+
+    @param enabled Whether timers are tickless.
+   */
+  public static void setTickless(boolean enabled) {
+    ticklessDefault = enabled;
+  }
+
+  /**
+    Retrieve whether timers created from now on are tickless.
    */
-  private AtomicInteger timeRemaining = new AtomicInteger(0);
+  public static boolean isTicklessDefault() {
+    return ticklessDefault;
+  }
+
+  /**
+    Whether this timer is tickless.
+   */
+  private final boolean tickless;
+
+  /**
+    The milliseconds remaining on the timer, as of the last start, stop or
+    tick.
+   */
+  private long remainingMillis;
+
+  /**
+    The System.nanoTime() the tickless timer last started at, while it
+    counts down.
+   */
+  private long startedNanos;
 
   /**
     The amount of seconds to append at the end of a turn.
@@ -17,12 +62,18 @@ public class BoardTimer {
   /**
     Whether or not to countdown the timer.
    */
-  private AtomicBoolean countdown = new AtomicBoolean(false);
+  private boolean countdown = false;
+
+  /**
+    Whether the timer has been killed.
+   */
+  private boolean killed = false;
 
   /**
-    The internal timer.
+    The task that counts the seconds down in the ticking mode, on the shared
+    ClockScheduler.
    */
-  private java.util.Timer timer;
+  private ScheduledFuture<?> ticker;
 
   /**
     A timer for one side in the game.
@@ -31,31 +82,54 @@ public class BoardTimer {
     @param append The amount of seconds to append at the end of a turn.
    */
   public BoardTimer(int initial, int append) {
+    tickless = ticklessDefault;
     reconfigure(initial, append);
 
-    // Create the actual timer that will perform the decrements.
-    timer = new java.util.Timer();
-    timer.scheduleAtFixedRate(new java.util.TimerTask() {
-      public void run() {
-        if (isCountingDown() && getTimeRemaining() > 0) {
-          timeRemaining.decrementAndGet();
-        }
-      }
-    }, 1000, 1000);
+    if (!tickless) {
+      ticker = ClockScheduler.every(this::tick, 1000);
+    }
+  }
+
+  /**
+    Take a second off the ticking timer, if it is counting down.
+   */
+  private synchronized void tick() {
+    if (countdown && remainingMillis > 0) {
+      remainingMillis = Math.max(remainingMillis - 1000, 0);
+    }
+  }
+
+  /**
+    Retrieve whether this timer is tickless.
+   */
+  public boolean isTickless() {
+    return tickless;
   }
 
   /**
     Retrieve the amount of time that is added to the timer after turns.
    */
-  public int getTimeAppended() {
+  public synchronized int getTimeAppended() {
     return timeToAppend;
   }
 
   /**
-    Retrieve the amount of time currently on the timer.
+    Retrieve the amount of time currently on the timer in milliseconds.
+   */
+  public synchronized long getTimeRemainingMillis() {
+    if (tickless && countdown) {
+      long elapsed = (System.nanoTime() - startedNanos) / 1000000;
+      return Math.max(remainingMillis - elapsed, 0);
+    }
+    return remainingMillis;
+  }
+
+  /**
+    Retrieve the amount of time currently on the timer in seconds, rounded
+    up.
    */
   public int getTimeRemaining() {
-    return timeRemaining.get();
+    return (int) ((getTimeRemainingMillis() + 999) / 1000);
   }
 
   /**
@@ -77,26 +151,25 @@ public class BoardTimer {
   /**
     Retrieves whether or not the timer is counting down.
    */
-  public boolean isCountingDown() {
-    return countdown.get();
+  public synchronized boolean isCountingDown() {
+    return countdown;
   }
 
   /**
     Retrieve whether or not the timer is killed.
    */
-  public boolean isKilled() {
-    return timer == null;
+  public synchronized boolean isKilled() {
+    return killed;
   }
 
   /**
     Prevent all future use of this timer.
    */
-  public void kill() {
-    countdown.set(false);
-    if (timer != null) {
-      timer.cancel();
-      timer = null;
-    }
+  public synchronized void kill() {
+    pause();
+    killed = true;
+    ClockScheduler.cancel(ticker);
+    ticker = null;
   }
 
   /**
@@ -106,17 +179,20 @@ public class BoardTimer {
     @param remaining The new amount of seconds remaining.
     @param append The new amount of seconds to append after turns.
    */
-  public void reconfigure(int remaining, int append) {
-    countdown.set(false);
-    timeRemaining.set(remaining);
+  public synchronized void reconfigure(int remaining, int append) {
+    countdown = false;
+    remainingMillis = remaining * 1000L;
     timeToAppend = append;
   }
 
   /**
     Start counting down the timer.
    */
-  public void start() {
-    countdown.set(!isKilled());
+  public synchronized void start() {
+    if (!killed && !countdown) {
+      startedNanos = System.nanoTime();
+      countdown = true;
+    }
   }
 
   /**
@@ -124,13 +200,21 @@ public class BoardTimer {
 
     @param skipAppending Whether to skip the appending stage (for game over)
    */
-  public int stop(boolean skipAppending) {
-    countdown.set(false);
-    
-    if (skipAppending) {
-      return getTimeRemaining();
+  public synchronized int stop(boolean skipAppending) {
+    pause();
+
+    if (!skipAppending) {
+      remainingMillis += timeToAppend * 1000L;
     }
 
-    return timeRemaining.addAndGet(timeToAppend);
+    return getTimeRemaining();
+  }
+
+  /**
+    Stop counting down, keeping the time used so far.
+   */
+  private void pause() {
+    remainingMillis = getTimeRemainingMillis();
+    countdown = false;
   }
 }
@@ -0,0 +1,78 @@
+package cowards;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+  The one thread every game clock runs on.
+
+  Each BoardTimer and each Board's clock task used to start a java.util.Timer,
+  which is a thread of its own, so every Board built with timers cost three
+  threads until its game ended. They now register their tasks here instead,
+  and cancel them when their game is done with them (see Board.killTimers).
+  A task must be quick, since it holds up every other game's clocks while it
+  runs.
+
+  The thread is a daemon, so the clocks never keep the program running.
+ */
+public final class ClockScheduler {
+  /** Runs the clock tasks of every game. */
+  private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+  /** Constructor. This is a static class. */
+  private ClockScheduler() {
+  }
+
+  /** Creates the executor and its thread. */
+  private static ScheduledThreadPoolExecutor createExecutor() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+      Thread thread = new Thread(task, "Game clocks");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Cancelled tasks leave the queue at once, rather than when they were due.
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
+  /**
+    Runs a task over and over, a fixed time apart.
+
+    @param task The task.
+    @param periodMillis The time between runs, and before the first.
+
+    @return The handle to cancel the task with.
+   */
+  public static ScheduledFuture<?> every(Runnable task, long periodMillis) {
+    return EXECUTOR.scheduleAtFixedRate(task, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+    Runs a task once, after a delay.
+
+    @param task The task.
+    @param delayMillis The delay.
+
+    @return The handle to cancel the task with.
+   */
+  public static ScheduledFuture<?> after(Runnable task, long delayMillis) {
+    return EXECUTOR.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+    Cancels a task, if there is one.
+
+    @param task The handle of the task, or null.
+   */
+  public static void cancel(ScheduledFuture<?> task) {
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /** Returns the number of tasks waiting to run. */
+  public static int getPendingTasks() {
+    return EXECUTOR.getQueue().size();
+  }
+}
@@ -0,0 +1,12 @@
+package cowards;
+
+/**
+  The searches the AI can choose its moves with.
+ */
+public enum Engine {
+  /** Iteratively deepened alpha-beta search on Minimax.utility() (see Minimax). */
+  MINIMAX,
+
+  /** Monte Carlo tree search on random playouts (see MonteCarlo). */
+  MONTE_CARLO
+}
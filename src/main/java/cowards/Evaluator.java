@@ -0,0 +1,18 @@
+package cowards;
+
+/**
+  Scores positions for the searches, through Minimax.utility().
+
+  High scores are good for the defenders and low scores for the attackers.
+  Scores should stay well inside DECISIVE_UTILITY either way, which is kept
+  for won and lost games.
+ */
+public interface Evaluator {
+  /**
+    Returns the score of a board. The game is not over; Minimax.utility()
+    scores finished games itself.
+
+    @param board The board to score.
+   */
+  double evaluate(Board board);
+}
@@ -1,25 +1,40 @@
 package cowards;
 
-import java.util.*;
-
 /** Struct class. */
 public class Frame {
   Node node;
-  LinkedList<Node> children;
+  int[] moves;
+  int moveCount;
+  int nextMove;
+  UndoRecord undo;
   boolean isMax;
   Node alpha;
   Node beta;
   Node vee;
-  
+
+  // Transposition table bookkeeping.
+  long hash;
+  int depth;
+  double alphaIn;
+  double betaIn;
+
   /** Constructor. */
   public Frame(
-      Node no, LinkedList<Node> kids,
+      Node no, int[] mv, UndoRecord un,
       boolean max, Node al, Node be, Node veeIn) {
     node = no;
-    children = kids;
+    moves = mv;
+    undo = un;
     isMax = max;
     alpha = al;
     beta = be;
     vee = veeIn;
+    alphaIn = al.utility();
+    betaIn = be.utility();
+  }
+
+  /** Whether there are moves left to search. */
+  boolean hasMoves() {
+    return nextMove < moveCount;
   }
 }
@@ -0,0 +1,215 @@
+package cowards;
+
+/**
+  One game hosted by a GameSessionManager: its board and clocks, which sides
+  the AI plays, and the state of the AI's turn.
+
+  Moves, whether submitted through the manager or made by the AI, change
+  the board only under the session's monitor, so the getters here can be
+  read from any thread while the game goes on. The one change made without
+  the monitor is a flag falling, on the clock thread: it sets the winner and
+  then the board's volatile game over flag, so it is seen by every thread,
+  and the AI's search, which stops on that flag, gives up.
+ */
+public class GameSession {
+  /** The id the manager knows the session by. */
+  private final String id;
+
+  /** The board of the game, with its timers. */
+  private final Board board;
+
+  /** Whether the AI plays the attackers. */
+  private final boolean attackerAi;
+
+  /** Whether the AI plays the defenders. */
+  private final boolean defenderAi;
+
+  /** The search of the AI's turn while it thinks, or null. */
+  private SearchControl search;
+
+  /** Whether an AI turn is waiting for a worker or thinking. */
+  private boolean aiPending = false;
+
+  /** Whether the session was closed. */
+  private boolean closed = false;
+
+  /** The number of moves made. */
+  private int moves = 0;
+
+  /**
+    Constructor.
+
+    @param id The id the manager knows the session by.
+    @param board The board of the game, with its timers.
+    @param attackerAi Whether the AI plays the attackers.
+    @param defenderAi Whether the AI plays the defenders.
+   */
+  GameSession(String id, Board board, boolean attackerAi, boolean defenderAi) {
+    this.id = id;
+    this.board = board;
+    this.attackerAi = attackerAi;
+    this.defenderAi = defenderAi;
+  }
+
+  /** Returns the id the manager knows the session by. */
+  public String getId() {
+    return id;
+  }
+
+  /** Returns whether the AI plays the attackers. */
+  public boolean isAttackerAi() {
+    return attackerAi;
+  }
+
+  /** Returns whether the AI plays the defenders. */
+  public boolean isDefenderAi() {
+    return defenderAi;
+  }
+
+  /**
+    Returns whether the AI plays a side.
+
+    @param attackers The side: true for the attackers.
+   */
+  public boolean isAi(boolean attackers) {
+    return attackers ? attackerAi : defenderAi;
+  }
+
+  /** Returns a copy of the board, without timers. */
+  public synchronized Board getBoard() {
+    return new Board(board, false);
+  }
+
+  /** Returns whether the game is over. */
+  public synchronized boolean isGameOver() {
+    return board.isGameOver();
+  }
+
+  /**
+    Returns whether it is the attackers' turn. Once the game is over, whether
+    the attackers won it, unless it is a draw (see isDraw()).
+   */
+  public synchronized boolean isAttackerTurn() {
+    return board.isAttackerTurn();
+  }
+
+  /** Returns whether the game ended in a draw. */
+  public synchronized boolean isDraw() {
+    return board.isGameOver() && board.isDraw();
+  }
+
+  /** Returns the number of moves made. */
+  public synchronized int getMoveCount() {
+    return moves;
+  }
+
+  /** Returns whether an AI turn is waiting for a worker or thinking. */
+  public synchronized boolean isAiPending() {
+    return aiPending;
+  }
+
+  /** Returns whether the session was closed. */
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+    Returns the time left on a side's clock in milliseconds.
+
+    @param attackers The side: true for the attackers.
+   */
+  public long getTimeRemainingMillis(boolean attackers) {
+    BoardTimer timer = attackers ? board.getAttackerTimer() : board.getDefenderTimer();
+    return timer == null ? 0 : timer.getTimeRemainingMillis();
+  }
+
+  /**
+    Waits until no AI turn is waiting or thinking.
+
+    @param timeoutMillis How long to wait at most.
+
+    @return Whether the AI is done, rather than the wait timing out.
+   */
+  public synchronized boolean awaitAi(long timeoutMillis) throws InterruptedException {
+    long due = System.nanoTime() + timeoutMillis * 1000000;
+    while (aiPending) {
+      long left = (due - System.nanoTime()) / 1000000;
+      if (left <= 0) {
+        return false;
+      }
+      wait(left);
+    }
+    return true;
+  }
+
+  /** Returns the board itself, for the manager. */
+  Board board() {
+    return board;
+  }
+
+  /**
+    Returns whether the AI is to move: the game goes on, the AI plays the
+    side to move and no AI turn is under way. Call with the monitor held.
+   */
+  boolean isAiToMove() {
+    return !closed && !aiPending && !board.isGameOver() && isAi(board.isAttackerTurn());
+  }
+
+  /**
+    Makes a move for the side to move. Call with the monitor held.
+
+    @param fromRow The row of the piece to move.
+    @param fromCol The column of the piece to move.
+    @param toRow The row to move it to.
+    @param toCol The column to move it to.
+
+    @return Whether the move was legal and made.
+   */
+  boolean makeMove(int fromRow, int fromCol, int toRow, int toCol) {
+    if (closed || board.isGameOver()) {
+      return false;
+    }
+
+    try {
+      if (!board.select(fromRow, fromCol) || !board.move(toRow, toCol)) {
+        return false;
+      }
+    } catch (GridOutOfBoundsException gx) {
+      return false;
+    }
+
+    ++moves;
+    return true;
+  }
+
+  /** Marks an AI turn as under way. Call with the monitor held. */
+  void setAiPending() {
+    aiPending = true;
+  }
+
+  /**
+    Sets the search of the AI's turn.
+
+    @param control The search, or null once it is done.
+   */
+  synchronized void setSearch(SearchControl control) {
+    search = control;
+  }
+
+  /** Marks the AI's turn as done and wakes those waiting for it. */
+  synchronized void finishAi() {
+    search = null;
+    aiPending = false;
+    notifyAll();
+  }
+
+  /** Closes the session: stops the AI's search and the clocks for good. */
+  synchronized void close() {
+    closed = true;
+    if (search != null) {
+      search.cancel();
+    }
+    board.killTimers();
+    notifyAll();
+  }
+}
@@ -0,0 +1,246 @@
+package cowards;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+  Hosts any number of games at once without a window, for a tournament
+  backend or a game server.
+
+  Each game is a GameSession, keyed by its id, with a Board of its own and
+  its clocks running on the shared ClockScheduler. Moves come in through
+  submitMove(). Whenever it is the AI's turn in a game, the turn is queued
+  for a fixed pool of worker threads, each of which searches one game at a
+  time on its own thread. So the threads stay the same however many games
+  there are; a game whose AI turn waits for a worker has its clock running,
+  so size the pool to the games that think at once.
+
+  Nothing here touches Swing.
+ */
+public class GameSessionManager {
+  /** The games, by id. */
+  private final ConcurrentHashMap<String, GameSession> sessions = new ConcurrentHashMap<>();
+
+  /** The number of the next session id. */
+  private final AtomicLong nextId = new AtomicLong(1);
+
+  /** The workers the AI turns run on. */
+  private final ExecutorService workers;
+
+  /** How long the AI thinks about a move, or zero to go by its clock. */
+  private volatile long moveMillis = 0;
+
+  /** Constructor for a pool with a worker for each core. */
+  public GameSessionManager() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+    Constructor.
+
+    @param threads The number of workers the AI turns run on.
+   */
+  public GameSessionManager(int threads) {
+    AtomicInteger count = new AtomicInteger(1);
+    workers = Executors.newFixedThreadPool(Math.max(threads, 1), task -> {
+      Thread thread = new Thread(task, "Game AI " + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+    Sets how long the AI thinks about each move.
+
+    @param millis The time in milliseconds, or zero to go by the clock of
+      the side to move (see TimeManager).
+   */
+  public void setMoveMillis(long millis) {
+    moveMillis = Math.max(millis, 0);
+  }
+
+  /** Returns how long the AI thinks about each move, or zero. */
+  public long getMoveMillis() {
+    return moveMillis;
+  }
+
+  /**
+    Starts a new game from the initial board, with the clocks set up as for
+    any new Board (see Board.setTimerInitial()). If the AI plays the
+    attackers, its first turn is queued at once.
+
+    @param attackerAi Whether the AI plays the attackers.
+    @param defenderAi Whether the AI plays the defenders.
+
+    @return The session of the game.
+   */
+  public GameSession createSession(boolean attackerAi, boolean defenderAi)
+      throws BadAsciiBoardFormatException {
+    String id = "game-" + nextId.getAndIncrement();
+    GameSession session = new GameSession(id, new Board(), attackerAi, defenderAi);
+    sessions.put(id, session);
+    queueAiTurn(session);
+    return session;
+  }
+
+  /**
+    Returns the session with an id.
+
+    @param id The id of the session.
+
+    @return The session, or null if there is none.
+   */
+  public GameSession getSession(String id) {
+    return sessions.get(id);
+  }
+
+  /** Returns the number of sessions open. */
+  public int getSessionCount() {
+    return sessions.size();
+  }
+
+  /**
+    Makes a move for a human player. The AI's reply, if it is to make one,
+    is queued.
+
+    @param id The id of the session.
+    @param fromRow The row of the piece to move.
+    @param fromCol The column of the piece to move.
+    @param toRow The row to move it to.
+    @param toCol The column to move it to.
+
+    @return Whether the move was made. It is not if there is no such
+      session, the game is over, the AI plays the side to move, or the move
+      is not legal.
+   */
+  public boolean submitMove(String id, int fromRow, int fromCol, int toRow, int toCol) {
+    GameSession session = sessions.get(id);
+    if (session == null) {
+      return false;
+    }
+
+    synchronized (session) {
+      if (session.isAiPending() || session.isAi(session.board().isAttackerTurn())
+          || !session.makeMove(fromRow, fromCol, toRow, toCol)) {
+        return false;
+      }
+    }
+
+    queueAiTurn(session);
+    return true;
+  }
+
+  /**
+    Closes a session: the AI stops thinking and the clocks stop for good.
+
+    @param id The id of the session.
+
+    @return Whether there was such a session.
+   */
+  public boolean closeSession(String id) {
+    GameSession session = sessions.remove(id);
+    if (session == null) {
+      return false;
+    }
+
+    session.close();
+    return true;
+  }
+
+  /**
+    Closes every session whose game is over.
+
+    @return The number of sessions closed.
+   */
+  public int closeFinishedSessions() {
+    int closed = 0;
+    for (GameSession session : sessions.values()) {
+      if (session.isGameOver() && closeSession(session.getId())) {
+        ++closed;
+      }
+    }
+    return closed;
+  }
+
+  /** Closes every session and stops the workers. */
+  public void shutdown() {
+    for (String id : sessions.keySet()) {
+      closeSession(id);
+    }
+    workers.shutdownNow();
+  }
+
+  /**
+    Queues the AI's turn in a game, if it is the AI's turn.
+
+    @param session The session of the game.
+   */
+  private void queueAiTurn(GameSession session) {
+    synchronized (session) {
+      if (!session.isAiToMove()) {
+        return;
+      }
+      session.setAiPending();
+    }
+
+    try {
+      workers.execute(() -> playAiTurn(session));
+    } catch (RejectedExecutionException rx) {
+      // The manager is shutting down.
+      session.finishAi();
+    }
+  }
+
+  /**
+    Thinks about and makes the AI's move in a game, on a worker. The search
+    gives up if the game ends or the session is closed first.
+
+    @param session The session of the game.
+   */
+  private void playAiTurn(GameSession session) {
+    boolean moved = false;
+    try {
+      Board board = session.board();
+      SearchControl control = new SearchControl(board::isGameOver);
+      session.setSearch(control);
+      if (session.isClosed()) {
+        return;
+      }
+
+      int[] choice = chooseMove(board, control);
+      synchronized (session) {
+        moved = choice != null && !control.isCancelled()
+            && session.makeMove(choice[2], choice[3], choice[0], choice[1]);
+      }
+    } finally {
+      session.finishAi();
+    }
+
+    if (moved) {
+      // The AI may play the other side as well.
+      queueAiTurn(session);
+    }
+  }
+
+  /**
+    Chooses the AI's move on a board with the engine Hnefalump is set to,
+    searching on the calling thread alone.
+
+    @param board The board the AI is to move on.
+    @param control Stops the search early.
+
+    @return The move, as from Node.getMove(), or null.
+   */
+  private int[] chooseMove(Board board, SearchControl control) {
+    long millis = moveMillis > 0 ? moveMillis : TimeManager.budgetMillis(board);
+    if (Hnefalump.getEngine() == Engine.MONTE_CARLO) {
+      return Hnefalump.getMonteCarloMove(board, millis, 1, control);
+    }
+
+    return Hnefalump.getNextMove(board, 0, millis, 1, Parallelism.ROOT_SPLIT, control);
+  }
+}
@@ -4,6 +4,23 @@ package cowards;
   Hnefatafl AI.
  */
 public class Hnefalump {
+  /** The engine getTimedMove() searches with. */
+  private static Engine engine = Engine.MINIMAX;
+
+  /**
+    Setter for the engine getTimedMove() searches with.
+
+    @param choice The engine to use.
+   */
+  public static void setEngine(Engine choice) {
+    engine = choice;
+  }
+
+  /** Getter for the engine getTimedMove() searches with. */
+  public static Engine getEngine() {
+    return engine;
+  }
+
   /**
     Uses a minimax tree to determine the next move. 
 
@@ -20,4 +37,120 @@ public class Hnefalump {
 
     return decision.getMove();
   }
+
+  /**
+    Uses an iteratively deepened minimax tree to determine the next move,
+    searching as deep as the time allows.
+
+    @param board The starting board to search for moves.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param millis How long to think in milliseconds.
+   */
+  public static int[] getNextMove(Board board, int maxDepth, long millis) {
+    return getNextMove(board, maxDepth, millis, 1);
+  }
+
+  /**
+    Uses an iteratively deepened minimax tree to determine the next move,
+    splitting the work across a number of threads.
+
+    @param board The starting board to search for moves.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param millis How long to think in milliseconds.
+    @param threads How many threads to search with. One searches on the
+      calling thread alone.
+   */
+  public static int[] getNextMove(Board board, int maxDepth, long millis, int threads) {
+    return getNextMove(board, maxDepth, millis, threads, Parallelism.ROOT_SPLIT);
+  }
+
+  /**
+    Uses an iteratively deepened minimax tree to determine the next move,
+    sharing the work across a number of threads in the given way.
+
+    @param board The starting board to search for moves.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param millis How long to think in milliseconds.
+    @param threads How many threads to search with. One searches on the
+      calling thread alone.
+    @param mode How the threads share the work.
+   */
+  public static int[] getNextMove(
+      Board board, int maxDepth, long millis, int threads, Parallelism mode) {
+    return getNextMove(board, maxDepth, millis, threads, mode, new SearchControl());
+  }
+
+  /**
+    Uses an iteratively deepened minimax tree to determine the next move, as
+    above, until the time runs out or the control stops the search. A stopped
+    search gives the best move of the deepest depth it finished.
+
+    @param board The starting board to search for moves.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param millis How long to think in milliseconds.
+    @param threads How many threads to search with. One searches on the
+      calling thread alone.
+    @param mode How the threads share the work.
+    @param control Stops the search early.
+   */
+  public static int[] getNextMove(Board board, int maxDepth, long millis,
+      int threads, Parallelism mode, SearchControl control) {
+    SearchResult result = Minimax.iterativeDeepening(
+        new Node(board, null, 0), maxDepth, millis, threads, mode, control);
+    if (result == null) {
+      return null;
+    }
+
+    return result.getMove();
+  }
+
+  /**
+    Uses an iteratively deepened minimax tree to determine the next move,
+    thinking for as long as the side to move's clock allows (see
+    TimeManager).
+
+    @param board The starting board to search for moves.
+   */
+  public static int[] getTimedMove(Board board) {
+    return getTimedMove(board, new SearchControl());
+  }
+
+  /**
+    Uses the chosen engine (see setEngine()) to determine the next move,
+    thinking for as long as the side to move's clock allows, or until the
+    control stops the search. The Monte Carlo engine searches on every core.
+
+    @param board The starting board to search for moves.
+    @param control Stops the search early.
+   */
+  public static int[] getTimedMove(Board board, SearchControl control) {
+    long millis = TimeManager.budgetMillis(board);
+    if (engine == Engine.MONTE_CARLO) {
+      return getMonteCarloMove(
+          board, millis, Runtime.getRuntime().availableProcessors(), control);
+    }
+
+    return getNextMove(board, 0, millis, 1, Parallelism.ROOT_SPLIT, control);
+  }
+
+  /**
+    Uses Monte Carlo tree search to determine the next move.
+
+    @param board The starting board to search for moves.
+    @param millis How long to think in milliseconds.
+    @param threads How many threads to run playouts on, counting the calling
+      thread.
+    @param control Stops the search early. A stopped search gives the best
+      move found so far.
+   */
+  public static int[] getMonteCarloMove(Board board, long millis, int threads,
+      SearchControl control) {
+    SearchResult result = MonteCarlo.decision(
+        new Node(board, null, 0), millis, 0, threads, control);
+    if (result == null) {
+      return null;
+    }
+
+    return result.getMove();
+  }
 }
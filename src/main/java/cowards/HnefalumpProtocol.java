@@ -0,0 +1,430 @@
+package cowards;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+  A line based text protocol for driving Hnefalump without the window, after
+  the UCI protocol of chess engines, so it can be run by tournament managers
+  and scripts.
+
+  Squares are named by a column letter, a to k from the left, and a row
+  number, 1 to 11 from the bottom, so the attackers' first move might be
+  d11d9. Commands, one a line:
+
+  uci                     - Answers with the engine's name and options,
+                            then uciok.
+  isready                 - Answers readyok.
+  setoption name N value V
+                          - Sets the option N: Threads (the number of
+                            threads to search with) or Evaluator (material
+                            or table).
+  ucinewgame              - Goes back to the initial board.
+  position startpos [moves M...]
+  position board R [a|d] [moves M...]
+                          - Sets up the initial board, or the board R: its
+                            eleven rows from the top, split by slashes, with
+                            A, D and K for the pieces and dots for empty
+                            squares, and the attackers (a) or defenders (d)
+                            to move. Then the moves M are made in turn.
+  go [depth D] [nodes N] [movetime T] [atime T] [dtime T] [ainc T]
+     [dinc T] [infinite]  - Searches the board until a limit is reached:
+                            the depth, the nodes, the milliseconds, or the
+                            budget of the side to move's clock (see
+                            TimeManager) given the milliseconds left on each
+                            side's clock and added after each move. With no
+                            limit it searches until stopped. Every finished
+                            depth prints a line "info depth D score cp S
+                            nodes N nps X time T pv M", S being in hundredths
+                            of a piece for the side to move, and the end of
+                            the search prints "bestmove M".
+  stop                    - Ends the search, which prints its best move.
+  quit                    - Ends the search and the program.
+
+  A search runs on a thread of its own, so stop can be read while it goes.
+  Anything not understood is answered with an "info string" line.
+ */
+public class HnefalumpProtocol {
+  /** A square in the protocol's notation. */
+  private static final String SQUARE = "([a-k])(1[01]|[1-9])";
+
+  /** A move in the protocol's notation. */
+  private static final Pattern MOVE = Pattern.compile(SQUARE + "-?" + SQUARE);
+
+  /** Where the answers go. */
+  private final PrintStream out;
+
+  /** The board to search from. */
+  private Board board;
+
+  /** The number of threads to search with. */
+  private int threads = 1;
+
+  /** The running search's control, or null. */
+  private volatile SearchControl search;
+
+  /** The thread of the running search, or null. */
+  private Thread searchThread;
+
+  /**
+    Constructor. The board starts as the initial board.
+
+    @param output Where the answers go.
+   */
+  public HnefalumpProtocol(PrintStream output) throws BadAsciiBoardFormatException {
+    out = output;
+    board = untimed(BoardLayout.INITIAL_BOARD);
+  }
+
+  /**
+    Runs the protocol on the standard input and output.
+
+    @param args Ignored.
+   */
+  public static void main(String[] args) throws BadAsciiBoardFormatException, IOException {
+    new HnefalumpProtocol(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+  }
+
+  /**
+    Reads and carries out commands until quit or the end of the input.
+
+    @param in Where the commands come from.
+   */
+  public void run(BufferedReader in) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (!handle(line)) {
+        return;
+      }
+    }
+    stopSearch();
+  }
+
+  /**
+    Carries out a command.
+
+    @param line The command.
+
+    @return False once the command was quit.
+   */
+  public boolean handle(String line) {
+    String[] words = line.trim().split("\\s+");
+    switch (words[0]) {
+      case "":
+        break;
+      case "uci":
+        send("id name Hnefalump");
+        send("option name Threads type spin default 1 min 1 max 64");
+        send("option name Evaluator type combo default material var material var table");
+        send("uciok");
+        break;
+      case "isready":
+        send("readyok");
+        break;
+      case "setoption":
+        setOption(words);
+        break;
+      case "ucinewgame":
+        stopSearch();
+        setPosition(new String[] {"position", "startpos"});
+        break;
+      case "position":
+        stopSearch();
+        setPosition(words);
+        break;
+      case "go":
+        stopSearch();
+        go(words);
+        break;
+      case "stop":
+        stopSearch();
+        break;
+      case "quit":
+        stopSearch();
+        return false;
+      default:
+        send("info string unknown command " + words[0]);
+        break;
+    }
+    return true;
+  }
+
+  /** Waits for the running search, if there is one, to print its best move. */
+  public void awaitSearch() throws InterruptedException {
+    Thread thread = searchThread;
+    if (thread != null) {
+      thread.join();
+    }
+  }
+
+  /** Returns a copy of the board to search from, without timers. */
+  public Board getBoard() {
+    return new Board(board, false);
+  }
+
+  /**
+    Names a square.
+
+    @param row The row of the square.
+    @param col The column of the square.
+
+    @return The name of the square, such as d11.
+   */
+  public static String squareName(int row, int col) {
+    return (char) ('a' + col) + Integer.toString(BoardLayout.GRID_ROW_MAX + 1 - row);
+  }
+
+  /**
+    Names a move.
+
+    @param move The move as from Node.getMove().
+
+    @return The name of the move, such as d11d9.
+   */
+  public static String moveName(int[] move) {
+    return squareName(move[2], move[3]) + squareName(move[0], move[1]);
+  }
+
+  /**
+    Sets an option.
+
+    @param words The words of the setoption command.
+   */
+  private void setOption(String[] words) {
+    String name = wordAfter(words, "name");
+    String value = wordAfter(words, "value");
+    if ("Threads".equalsIgnoreCase(name) && value != null) {
+      try {
+        threads = Math.max(Integer.parseInt(value), 1);
+      } catch (NumberFormatException nx) {
+        send("info string bad Threads value " + value);
+      }
+    } else if ("Evaluator".equalsIgnoreCase(name) && "table".equalsIgnoreCase(value)) {
+      Minimax.setEvaluator(new TableEvaluator());
+    } else if ("Evaluator".equalsIgnoreCase(name) && "material".equalsIgnoreCase(value)) {
+      Minimax.setEvaluator(null);
+    } else {
+      send("info string unknown option " + name);
+    }
+  }
+
+  /**
+    Sets up the board of a position command and makes its moves. An illegal
+    move is reported, and it and the moves after it are left unmade.
+
+    @param words The words of the position command.
+   */
+  private void setPosition(String[] words) {
+    Board next;
+    int at = 2;
+    try {
+      if (words.length > 1 && words[1].equals("startpos")) {
+        next = untimed(BoardLayout.INITIAL_BOARD);
+      } else if (words.length > 2 && words[1].equals("board")) {
+        next = parseBoard(words[2]);
+        if (at + 1 < words.length && (words[at + 1].equals("a") || words[at + 1].equals("d"))) {
+          next.setAttackerTurn(words[at + 1].equals("a"));
+          ++at;
+        }
+        ++at;
+      } else {
+        send("info string position needs startpos or board");
+        return;
+      }
+    } catch (BadAsciiBoardFormatException bx) {
+      send("info string bad board " + words[2]);
+      return;
+    }
+
+    if (at < words.length && words[at].equals("moves")) {
+      for (++at; at < words.length; ++at) {
+        if (!makeMove(next, words[at])) {
+          send("info string illegal move " + words[at]);
+          break;
+        }
+      }
+    }
+    board = next;
+  }
+
+  /**
+    Reads a board from its rows, top first, split by slashes.
+
+    @param rows The rows, with A, D and K for the pieces and dots for empty
+      squares.
+
+    @return The board, with the attackers to move.
+   */
+  private static Board parseBoard(String rows) throws BadAsciiBoardFormatException {
+    String[] split = rows.split("/");
+    char[][] chars = new char[split.length][];
+    for (int r = 0; r < split.length; ++r) {
+      chars[r] = split[r].replace('.', ' ').toCharArray();
+    }
+    return untimed(chars);
+  }
+
+  /**
+    Builds a board without timers. The engine is told its time in each go
+    command, so a clock of the board's own would only run out while it sits
+    idle.
+
+    @param chars The board, as for the Board constructor.
+
+    @return The board, with the attackers to move.
+   */
+  private static Board untimed(char[][] chars) throws BadAsciiBoardFormatException {
+    Board timed = new Board(chars);
+    timed.killTimers();
+    return new Board(timed, false);
+  }
+
+  /**
+    Makes a move on a board.
+
+    @param target The board.
+    @param name The name of the move, such as d11d9.
+
+    @return Whether the move was legal and made.
+   */
+  private static boolean makeMove(Board target, String name) {
+    Matcher matcher = MOVE.matcher(name);
+    if (!matcher.matches() || target.isGameOver()) {
+      return false;
+    }
+
+    int fromCol = matcher.group(1).charAt(0) - 'a';
+    int fromRow = BoardLayout.GRID_ROW_MAX + 1 - Integer.parseInt(matcher.group(2));
+    int toCol = matcher.group(3).charAt(0) - 'a';
+    int toRow = BoardLayout.GRID_ROW_MAX + 1 - Integer.parseInt(matcher.group(4));
+    try {
+      return target.select(fromRow, fromCol) && target.move(toRow, toCol);
+    } catch (GridOutOfBoundsException gx) {
+      return false;
+    }
+  }
+
+  /**
+    Starts a search of the board with the limits of a go command.
+
+    @param words The words of the go command.
+   */
+  private void go(String[] words) {
+    int depth = (int) longAfter(words, "depth");
+    long nodes = longAfter(words, "nodes");
+    long moveTime = longAfter(words, "movetime");
+
+    // Without a set time, go by the clock of the side to move, if given.
+    boolean attackers = board.isAttackerTurn();
+    long clock = longAfter(words, attackers ? "atime" : "dtime");
+    if (moveTime == 0 && clock > 0) {
+      long increment = longAfter(words, attackers ? "ainc" : "dinc");
+      int pieces = board.attackerBits().count() + board.defendingBits().count();
+      moveTime = TimeManager.budgetMillis(clock, increment, pieces);
+    }
+    long millis = moveTime;
+
+    Board root = new Board(board, false);
+    long start = System.nanoTime();
+    SearchControl[] self = new SearchControl[1];
+    boolean[] finished = new boolean[1];
+
+    // The first depth runs to the end whatever the node limit, so there is
+    // always a move, as it does whatever the time limit.
+    SearchControl control = new SearchControl(
+        () -> nodes > 0 && finished[0] && self[0].getNodes() >= nodes);
+    self[0] = control;
+    control.setDepthListener(result -> {
+      finished[0] = true;
+      sendInfo(result, attackers, System.nanoTime() - start);
+    });
+    search = control;
+
+    searchThread = new Thread(() -> {
+      int[] move = null;
+      if (!root.isGameOver()) {
+        SearchResult result = Minimax.iterativeDeepening(new Node(root, null, 0), depth, millis,
+            threads, Parallelism.ROOT_SPLIT, control);
+        move = result == null ? null : result.getMove();
+      }
+      send("bestmove " + (move == null ? "(none)" : moveName(move)));
+    }, "Protocol search");
+    searchThread.start();
+  }
+
+  /**
+    Prints the info line of a finished depth.
+
+    @param result The result of the depth.
+    @param attackers Whether the attackers are to move.
+    @param nanos The time searched so far.
+   */
+  private void sendInfo(SearchResult result, boolean attackers, long nanos) {
+    // The utility is high for the defenders.
+    long score = Math.round(result.utility() * 100) * (attackers ? -1 : 1);
+    long millis = nanos / 1000000;
+    long nps = nanos > 0 ? result.getNodes() * 1000000000L / nanos : 0;
+    send("info depth " + result.getDepth() + " score cp " + score
+        + " nodes " + result.getNodes() + " nps " + nps + " time " + millis
+        + " pv " + moveName(result.getMove()));
+  }
+
+  /** Stops the running search, if there is one, and waits for its best move. */
+  private void stopSearch() {
+    SearchControl control = search;
+    if (control != null) {
+      control.cancel();
+    }
+    try {
+      awaitSearch();
+    } catch (InterruptedException ix) {
+      Thread.currentThread().interrupt();
+    }
+    searchThread = null;
+    search = null;
+  }
+
+  /**
+    Returns the word after a keyword, or null.
+
+    @param words The words to look through.
+    @param key The keyword.
+   */
+  private static String wordAfter(String[] words, String key) {
+    for (int i = 0; i + 1 < words.length; ++i) {
+      if (words[i].equals(key)) {
+        return words[i + 1];
+      }
+    }
+    return null;
+  }
+
+  /**
+    Returns the number after a keyword, or zero.
+
+    @param words The words to look through.
+    @param key The keyword.
+   */
+  private static long longAfter(String[] words, String key) {
+    String word = wordAfter(words, key);
+    try {
+      return word == null ? 0 : Math.max(Long.parseLong(word), 0);
+    } catch (NumberFormatException nx) {
+      return 0;
+    }
+  }
+
+  /**
+    Prints a line of output.
+
+    @param line The line.
+   */
+  private synchronized void send(String line) {
+    out.println(line);
+    out.flush();
+  }
+}
@@ -20,6 +20,9 @@ public class HnefataflPanel extends JPanel {
   // Keeps the AI and player from stepping on one another's toes.
   private static Semaphore aiSem = new Semaphore(1);
 
+  // Stops the AI's search, if it is thinking.
+  private static volatile SearchControl aiSearch;
+
   // For determining the game mode.
   private enum Mode { TWO_HUMAN, HUMAN_AI, AI_HUMAN }
 
@@ -132,10 +135,14 @@ public class HnefataflPanel extends JPanel {
         return;
       }
 
-      // We can only afford to look ahead 2 moves due to the timers.
-      // Note the thinking time will differ depending on CPU speed.
-      int [] choice = Hnefalump.getNextMove(board, 2);
-      if (choice == null) {
+      // Look ahead as far as the clock allows. The depth reached will differ
+      // depending on CPU speed. The search gives up if the game ends first.
+      Board current = board;
+      SearchControl control = new SearchControl(current::isGameOver);
+      aiSearch = control;
+      int [] choice = Hnefalump.getTimedMove(current, control);
+      aiSearch = null;
+      if (choice == null || control.isCancelled() || current.isGameOver()) {
         aiSem.release();
         return;
       }
@@ -147,6 +154,17 @@ public class HnefataflPanel extends JPanel {
     }
   }
 
+  /**
+    Stops the AI's search if it is thinking. It then gives up its turn
+    without moving.
+   */
+  private static void cancelAiMove() {
+    SearchControl control = aiSearch;
+    if (control != null) {
+      control.cancel();
+    }
+  }
+
   /**
     Handles click events
 
@@ -190,14 +208,21 @@ public class HnefataflPanel extends JPanel {
           // Not much we can do here.
         }
       } else if (newGame != null && newGame.contains(event.getPoint())) {
-        if (!aiSem.tryAcquire()) {
-          showMessageDialog("You cannot start a new game during the AI turn", false);
-          return;
-        }
+        // The AI keeps thinking while the user makes up their mind, so that
+        // its turn is not lost if they stay in the game.
+        boolean aiThinking = !aiSem.tryAcquire();
         showConfirmDialog("Do you really want to start a new game?",
             "Yes", () -> {
               try {
+                // Ending the game stops the AI's search, even one that has
+                // not got under way yet. It releases the semaphore once it
+                // notices.
                 board.setGameOver(true);
+                if (aiThinking) {
+                  cancelAiMove();
+                  aiSem.acquireUninterruptibly();
+                }
+                board.killTimers();
                 aiMode = Mode.TWO_HUMAN;
                 board = new Board();
                 showAiSelection();
@@ -210,7 +235,9 @@ public class HnefataflPanel extends JPanel {
             },
             "No",  () -> {
               board.resumeTimers();
-              aiSem.release();
+              if (!aiThinking) {
+                aiSem.release();
+              }
               return true;
             }
         );
@@ -307,10 +334,10 @@ public class HnefataflPanel extends JPanel {
         // Try to load a game.
         try {
           if (fileName != null) {
-            board.setGameOver(true);
             String[] splitFile = fileName.split("\\.");
             Board temp;
             if (null != (temp = BoardLoader.loadBoardFromSave(splitFile[0]))) {
+              board.killTimers();
               board = temp;
               showMessageDialog("Successfully loaded game file.", true);
               repaint();
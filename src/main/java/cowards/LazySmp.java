@@ -0,0 +1,107 @@
+package cowards;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+  Lazy SMP parallel search.
+
+  The calling thread runs the normal iterative deepening search while helper
+  threads run the same search from the same position, each with a root node
+  of its own, all over one shared transposition table. The helpers' results
+  are thrown away. What they leave behind in the table is what matters:
+  scores the main search can cut off with and best moves it can search
+  first. Half of the helpers start one depth ahead, so they tend to be
+  filling in the next depth before the main search gets there.
+
+  The table is the only thing the threads share, which relies on it being
+  safe to share without locking. The search does better the more it gets
+  out of the table's move ordering.
+ */
+public class LazySmp {
+  /** How long to wait for the helpers to notice the stop flag. */
+  private static final long STOP_WAIT_MILLIS = 1000;
+
+  /** Constructor. This is a static class. */
+  private LazySmp() {
+  }
+
+  /**
+    Searches depth 1, 2, 3... until the time runs out, as
+    Minimax.iterativeDeepening() does, with helper threads.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param threads The number of threads to search with, counting the
+      calling thread.
+
+    @return The deepest finished result, or null if there are no moves.
+   */
+  public static SearchResult search(Node root, int maxDepth, long millis, int threads) {
+    return search(
+        root, maxDepth, millis, threads, new TranspositionTable(), new SearchControl());
+  }
+
+  /**
+    As above, searching over a given table.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param threads The number of threads to search with, counting the
+      calling thread.
+    @param table The table to share between the threads.
+    @param control Stops the search early, helpers and all.
+
+    @return The deepest finished result, or null if there are no moves or the
+      search was stopped during the first depth.
+   */
+  static SearchResult search(Node root, int maxDepth, long millis, int threads,
+      TranspositionTable table, SearchControl control) {
+    int depthCap = maxDepth > 0 ? maxDepth : Minimax.MAX_ITERATIVE_DEPTH;
+    SearchControl stop = new SearchControl(null, control);
+    ExecutorService helpers = Executors.newFixedThreadPool(Math.max(threads - 1, 1));
+
+    for (int i = 1; i < threads; ++i) {
+      int firstDepth = 1 + i % 2;
+      Node helperRoot = new Node(root.getBoard(), null, 0);
+      helpers.execute(() -> help(helperRoot, firstDepth, depthCap, table, stop));
+    }
+
+    try {
+      return Minimax.iterativeDeepening(root, maxDepth, millis, table, null, control);
+    } finally {
+      stop.cancel();
+      helpers.shutdown();
+      try {
+        helpers.awaitTermination(STOP_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ix) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+    Runs a helper's iterative deepening until it is stopped or reaches the
+    depth cap.
+
+    @param root The helper's own node holding the board to search from.
+    @param firstDepth The depth to start at.
+    @param depthCap The deepest depth to search.
+    @param table The shared table to fill.
+    @param stop Stops once the main search is done.
+   */
+  private static void help(Node root, int firstDepth, int depthCap,
+      TranspositionTable table, SearchControl stop) {
+    MoveOrderer orderer = new MoveOrderer();
+    for (int depth = firstDepth; depth <= depthCap && !stop.isStopped(); ++depth) {
+      Node decision = Minimax.minimaxDecision(root, depth, table, stop, orderer);
+      if (decision == null || decision.getMove() == null
+          || Math.abs(decision.utility()) >= Minimax.DECISIVE_UTILITY) {
+        return;
+      }
+    }
+  }
+}
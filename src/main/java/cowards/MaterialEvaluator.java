@@ -0,0 +1,17 @@
+package cowards;
+
+/**
+  The original evaluation: the difference in pieces, plus how close the king
+  is to its nearest corner. This heuristic is inspired by the paper Evolving
+  Players for an Ancient Game: Hnefatafl.
+ */
+public class MaterialEvaluator implements Evaluator {
+  /** The king's distance to a corner from the throne. */
+  private static final double THRONE_DISTANCE = 7.071;
+
+  @Override
+  public double evaluate(Board board) {
+    // The board keeps both terms up to date as moves are made.
+    return board.getMaterial() + (THRONE_DISTANCE - board.getKingDistance());
+  }
+}
@@ -2,6 +2,7 @@ package cowards;
 
 import java.lang.Math;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
   AB Minimax tree supporting the Hnefalump module.
@@ -25,10 +26,111 @@ import java.util.*;
  */
 public class Minimax {
 
+  /**
+    Utility magnitude at which a position is treated as decided. Searching
+    deeper than a forced win or loss cannot change the decision.
+   */
+  public static final double DECISIVE_UTILITY = 100;
+
+  /**
+    Depth cap used by iterativeDeepening when no maximum depth is given.
+   */
+  public static final int MAX_ITERATIVE_DEPTH = 32;
+
+  /**
+    How many captures deep the quiescence search may go past the horizon by
+    default.
+   */
+  public static final int DEFAULT_QUIESCENCE_PLIES = 6;
+
+  /**
+    Whether the searches keep looking at captures past their depth limit
+    until the position is quiet. By default, they do.
+   */
+  private static boolean quiescence = true;
+
+  /** How many captures deep the quiescence search may go. */
+  private static int quiescencePlies = DEFAULT_QUIESCENCE_PLIES;
+
+  /**
+    How far either side of the previous depth's score the aspiration window
+    of each iterative deepening depth reaches by default.
+   */
+  public static final double DEFAULT_ASPIRATION_WINDOW = 0.5;
+
+  /** The aspiration window's reach either side of the expected score. */
+  private static double aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+
+  /** Scores the positions the game is not over in. */
+  private static Evaluator evaluator = new MaterialEvaluator();
+
   /** Constructor. This is a static class. */
   private Minimax() {
   }
 
+  /**
+    Turn the quiescence search on or off for every search started after the
+    call.
+
+    @param enabled Whether to search captures past the depth limit.
+   */
+  public static void setQuiescence(boolean enabled) {
+    quiescence = enabled;
+  }
+
+  /** Returns whether the quiescence search is on. */
+  public static boolean isQuiescence() {
+    return quiescence;
+  }
+
+  /**
+    Set how many captures deep the quiescence search may go. Any value less
+    than one will be set as the default.
+
+    @param plies The number of captures.
+   */
+  public static void setQuiescencePlies(int plies) {
+    quiescencePlies = plies > 0 ? plies : DEFAULT_QUIESCENCE_PLIES;
+  }
+
+  /** Returns how many captures deep the quiescence search may go. */
+  public static int getQuiescencePlies() {
+    return quiescencePlies;
+  }
+
+  /**
+    Sets how far either side of the previous depth's score iterative
+    deepening first searches each depth, for every search started after the
+    call. A score outside the window means searching the depth again with the
+    window widened on that side.
+
+    @param width The reach either side, in utility. Zero or less searches
+      every depth with a full window.
+   */
+  public static void setAspirationWindow(double width) {
+    aspirationWindow = width;
+  }
+
+  /** Returns the aspiration window's reach, zero or less when it is off. */
+  public static double getAspirationWindow() {
+    return aspirationWindow;
+  }
+
+  /**
+    Set how utility() scores positions the game is not over in, for every
+    search started after the call.
+
+    @param eval The evaluator. Null sets the original MaterialEvaluator.
+   */
+  public static void setEvaluator(Evaluator eval) {
+    evaluator = eval != null ? eval : new MaterialEvaluator();
+  }
+
+  /** Returns the evaluator utility() scores positions with. */
+  public static Evaluator getEvaluator() {
+    return evaluator;
+  }
+
   /** Returns the node containing the correct starting vee value. */
   public static Node startV(boolean isMax) {
     return isMax ? Node.getNegInf() : Node.getInf();
@@ -47,23 +149,22 @@ public class Minimax {
     return Math.sqrt(vdistance * vdistance + hdistance * hdistance);
   }
 
-  /** Returns the score of the board. High numbers are good for defenders. */
+  /**
+    Returns the score of the board. High numbers are good for defenders.
+    Finished games score DECISIVE_UTILITY either way, and everything else is
+    up to the evaluator (see setEvaluator).
+   */
   public static double utility(Board board) {
-    // This is a very simple heuristic. A pro Hnefatafl player could improve it.
     if (board.isGameOver() && board.isAttackerTurn()) {
       // Obvious win for attackers should be prioritized.
-      return -100;
+      return -DECISIVE_UTILITY;
     }
     if (board.isGameOver() && !board.isAttackerTurn()) {
       // Obvious win for defenders should be prioritized.
-      return 100;
+      return DECISIVE_UTILITY;
     }
 
-    // Take the difference of the two sides and figure out the king's nearest
-    // corner, and his minimum moves there. This heuristic portion is inspired
-    // by the paper Evolving Players for an Ancient Game: Hnefatafl.
-    return (board.getDefenders().size() - board.getAttackers().size())
-        + (7.071 - kingBestCorner(board));
+    return evaluator.evaluate(board);
   }
 
   /** Adds move (rw, cl) to the list if valid. */
@@ -77,35 +178,30 @@ public class Minimax {
     }
 
     // Add this possible move to the list of nodes.
-    in.add(new Node(
+    Node child = new Node(
         newBoard,
         parent.getMove() == null
             ? new int[] {rw, cl, pc[0], pc[1]} : parent.getMove(),
         utility(newBoard)
-    ));
+    );
+    child.setLastMove(BoardLayout.packMove(rw, cl, pc[0], pc[1]));
+    in.add(child);
   }
 
   /** Permute all legal moves for the current side. */
   public static LinkedList<Node> expand(Node parent) {
     Board board = parent.getBoard();
     LinkedList<Node> ret = new LinkedList<Node>();
-    LinkedList<int []> pieceList = board.isAttackerTurn()
-        ? board.getAttackers() : board.getDefenders();
-
-    // No possible moves.
-    if (board.isGameOver()) {
-      return ret;
-    }
 
+    // Only legal moves are worth copying the board for.
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    int count = generateMoves(board, moves);
     try {
-      // Go through all possible moves.
-      // For every piece of our type:
-      for (int[] p : pieceList) {
-        // For every other square on the board.
-        for (int i = 0; i < 11; ++i) {
-          expandMove(parent, new Board(board, false), ret, p, i, p[1]);
-          expandMove(parent, new Board(board, false), ret, p, p[0], i);
-        }
+      for (int i = 0; i < count; ++i) {
+        int from = BoardLayout.moveFrom(moves[i]);
+        int to = BoardLayout.moveTo(moves[i]);
+        expandMove(parent, new Board(board, false), ret,
+            new int[] {from / 11, from % 11}, to / 11, to % 11);
       }
     } catch (GridOutOfBoundsException gx) {
       // This would be an obvious programmer error.
@@ -116,12 +212,43 @@ public class Minimax {
     return ret;
   }
 
-  /** Prunes the children of the current frame. */
-  private static void handlePrune(Frame cur) {
+  /**
+    Writes the packed legal moves for the side to move into the buffer.
+
+    @param board The board to generate moves for.
+    @param moves The buffer, at least BoardLayout.MAX_MOVES long.
+
+    @return The number of moves, which is zero once the game is over.
+   */
+  static int generateMoves(Board board, int[] moves) {
+    if (board.isGameOver()) {
+      return 0;
+    }
+
+    return BoardProcessor.generateMoves(board, moves);
+  }
+
+  /** Returns the move buffer for a ply, creating it the first time. */
+  private static int[] moveBuffer(ArrayList<int[]> buffers, int ply) {
+    while (buffers.size() <= ply) {
+      buffers.add(new int[BoardLayout.MAX_MOVES]);
+    }
+
+    return buffers.get(ply);
+  }
+
+  /**
+    Prunes the children of the current frame.
+
+    @return Whether the rest of the children were pruned.
+   */
+  private static boolean handlePrune(Frame cur) {
+    boolean pruned = false;
     if (cur.isMax) {
       if (cur.vee.utility() >= cur.beta.utility()) {
         // Prune the nodes below to save time.
-        cur.children.clear();
+        pruned = cur.hasMoves();
+        cur.nextMove = cur.moveCount;
       }
       if (cur.vee.utility() > cur.alpha.utility()) {
         // Update alpha.
@@ -130,13 +257,15 @@ public class Minimax {
     } else {
       if (cur.vee.utility() <= cur.alpha.utility()) {
         // Prune the nodes below to save time.
-        cur.children.clear();
+        pruned = cur.hasMoves();
+        cur.nextMove = cur.moveCount;
       }
       if (cur.vee.utility() < cur.beta.utility()) {
         // Update alpha.
         cur.beta = cur.vee;
       }
     }
+    return pruned;
   }
 
   /** Updates vee and the current node's utility if necessary. */
@@ -148,47 +277,531 @@ public class Minimax {
     }
   }
 
+  /**
+    Creates the frame for searching the position on the board, putting the
+    best move from the transposition table (if any) first in line, and
+    ordering the rest if there is an orderer.
+
+    @param board The board, with the node's move made.
+    @param node The node to search.
+    @param undo The undo record of the node's move.
+    @param isMax Whether the node maximizes.
+    @param alpha The alpha bound.
+    @param beta The beta bound.
+    @param depth How many more levels to search below the node.
+    @param table The transposition table, or null.
+    @param moves The buffer to generate the node's moves into.
+    @param orderer The move orderer, or null.
+    @param ply How many moves the node is below the root of the search.
+   */
+  private static Frame newFrame(Board board, Node node, UndoRecord undo, boolean isMax,
+      Node alpha, Node beta, int depth, TranspositionTable table, int[] moves,
+      MoveOrderer orderer, int ply) {
+    Frame frame = new Frame(node, moves, undo, isMax, alpha, beta, startV(isMax));
+    frame.moveCount = generateMoves(board, moves);
+    frame.depth = depth;
+    frame.hash = board.getHash();
+
+    long entry = table == null ? TranspositionTable.MISS : table.probe(frame.hash);
+    if (orderer != null) {
+      int best = entry == TranspositionTable.MISS
+          ? BoardLayout.NO_MOVE : TranspositionTable.getMove(entry);
+      orderer.order(board, frame.moves, frame.moveCount, best, ply);
+      return frame;
+    }
+    if (entry == TranspositionTable.MISS) {
+      return frame;
+    }
+
+    // Searching the previous best move first tightens the bounds early.
+    int best = TranspositionTable.getMove(entry);
+    for (int i = 0; i < frame.moveCount; ++i) {
+      if (frame.moves[i] == best) {
+        System.arraycopy(frame.moves, 0, frame.moves, 1, i);
+        frame.moves[0] = best;
+        break;
+      }
+    }
+
+    return frame;
+  }
+
+  /**
+    Creates the frame for the quiescence search of the position on the
+    board, which only tries the moves that capture. The side to move may also
+    decline them all and "stand pat" on the position's own score, so that is
+    where the frame's best value starts. That also makes the frame prune
+    straight away when the position is already good enough.
+
+    @param board The board, with the node's move made.
+    @param node The node to search.
+    @param undo The undo record of the node's move.
+    @param isMax Whether the node maximizes.
+    @param alpha The alpha bound.
+    @param beta The beta bound.
+    @param depth How far past the horizon the node is, as zero or less.
+    @param moves The buffer to generate the node's moves into.
+
+    @return The frame, which has no moves if the position is quiet.
+   */
+  private static Frame newQuiescenceFrame(Board board, Node node, UndoRecord undo,
+      boolean isMax, Node alpha, Node beta, int depth, int[] moves) {
+    Frame frame = new Frame(
+        node, moves, undo, isMax, alpha, beta, new Node(null, null, node.utility()));
+    int count = generateMoves(board, moves);
+    int captures = 0;
+    for (int i = 0; i < count; ++i) {
+      if (BoardProcessor.isCaptureMove(board, moves[i])) {
+        moves[captures++] = moves[i];
+      }
+    }
+    frame.moveCount = captures;
+    frame.depth = depth;
+    frame.hash = board.getHash();
+    return frame;
+  }
+
+  /** Records the result of a finished frame in the transposition table. */
+  private static void storeFrame(TranspositionTable table, Frame cur) {
+    // Leaves are cheap to score, and a frame without a searched child has
+    // no result worth keeping.
+    if (table == null || cur.depth <= 0 || cur.vee.getLastMove() == BoardLayout.NO_MOVE) {
+      return;
+    }
+
+    double score = cur.node.utility();
+    table.store(cur.hash, cur.depth,
+        TranspositionTable.boundType(score, cur.alphaIn, cur.betaIn),
+        score, cur.vee.getLastMove());
+  }
+
+  /**
+    Checks whether the transposition table already settles the position on
+    the board for the frame's window, and if so gives the node that score.
+   */
+  private static boolean tableCutoff(
+      TranspositionTable table, Board board, Node node, int depth, Frame cur) {
+    if (table == null) {
+      return false;
+    }
+
+    long entry = table.probe(board.getHash());
+    if (!TranspositionTable.isCutoff(entry, depth, cur.alpha.utility(), cur.beta.utility())) {
+      return false;
+    }
+
+    node.setValue(TranspositionTable.getScore(entry));
+    return true;
+  }
+
   /** Non-recursively determines the best move using a Minimax algorithm. */
   public static Node minimaxDecision(Node root, int maxDepth) {
+    return minimaxDecision(root, maxDepth, new TranspositionTable());
+  }
+
+  /**
+    Non-recursively determines the best move using a Minimax algorithm,
+    reusing positions already in the transposition table.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search.
+    @param table The transposition table to consult and fill.
+   */
+  public static Node minimaxDecision(Node root, int maxDepth, TranspositionTable table) {
+    return minimaxDecision(root, maxDepth, table, null);
+  }
+
+  /**
+    Non-recursively determines the best move using a Minimax algorithm,
+    counting the nodes it visits in the control.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search.
+    @param control Stops the search and counts its nodes.
+   */
+  public static Node minimaxDecision(Node root, int maxDepth, SearchControl control) {
+    return minimaxDecision(root, maxDepth, new TranspositionTable(), control);
+  }
+
+  /**
+    Non-recursively determines the best move using a Minimax algorithm, giving
+    up when the control says to.
+
+    The search walks a single copy of the root board, making and unmaking
+    moves as it goes, so the nodes it creates only carry moves and scores.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search.
+    @param table The transposition table to consult and fill, or null.
+    @param control Stops the search, or null to search until done.
+
+    @return The best node, or null if the search was stopped.
+   */
+  static Node minimaxDecision(Node root, int maxDepth, TranspositionTable table,
+      SearchControl control) {
+    return minimaxDecision(root, maxDepth, table, control, new MoveOrderer());
+  }
+
+  /**
+    Non-recursively determines the best move using a Minimax algorithm, as
+    above, with a move orderer that may carry killers and history over from
+    earlier searches.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search.
+    @param table The transposition table to consult and fill, or null.
+    @param control Stops the search, or null to search until done.
+    @param orderer The move orderer, or null to only try the table's move
+      first.
+
+    @return The best node, or null if the search was stopped.
+   */
+  static Node minimaxDecision(Node root, int maxDepth, TranspositionTable table,
+      SearchControl control, MoveOrderer orderer) {
+    // Depths are meaningless to the table when the search is unlimited.
+    if (maxDepth == 0) {
+      table = null;
+    }
+
+    Board board = new Board(root.getBoard(), false);
+    return search(board, root, !board.isAttackerTurn(), Node.getNegInf(), Node.getInf(),
+        maxDepth == 0 ? Integer.MAX_VALUE : maxDepth, table, control, orderer);
+  }
+
+  /**
+    Searches the position on the board within an alpha-beta window. This is
+    the loop behind minimaxDecision(), and lets the parallel searches start
+    from any node of the tree.
+
+    @param board The board to search. Moves are made and taken back on it,
+      and it is left as it was found.
+    @param root The node of the position. Its value is set to the score of
+      the search, and the nodes below it take its move if it has one.
+    @param isMax Whether the side to move maximizes.
+    @param alpha The alpha bound.
+    @param beta The beta bound.
+    @param maxDepth How many more levels to search.
+    @param table The transposition table to consult and fill, or null.
+    @param control Stops the search, or null to search until done.
+    @param orderer The move orderer, or null to only try the table's move
+      first.
+
+    @return The best child node, or null if the search was stopped.
+   */
+  static Node search(Board board, Node root, boolean isMax, Node alpha, Node beta,
+      int maxDepth, TranspositionTable table, SearchControl control, MoveOrderer orderer) {
     // Stack init.
     Stack<Frame> stack = new Stack<Frame>();
-    boolean isMax = !root.getBoard().isAttackerTurn();
-    stack.push(new Frame(
-        root, expand(root), isMax,
-        Node.getNegInf(), Node.getInf(), startV(isMax)
+    // One move buffer per ply, reused by every frame at that ply.
+    ArrayList<int[]> buffers = new ArrayList<int[]>();
+    stack.push(newFrame(
+        board, root, null, isMax, alpha, beta, maxDepth, table, moveBuffer(buffers, 0),
+        orderer, 0
     ));
 
     // Simulate recursion using a stack.
+    int steps = 0;
+    long nodes = 0;
+    long reported = 0;
+    // The settings could change while the search runs.
+    boolean searchCaptures = quiescence;
+    int capturePlies = quiescencePlies;
     while (!stack.empty()) {
+      // A partially searched tree says nothing reliable about the best move.
+      if (control != null && (++steps & (SearchControl.CHECK_INTERVAL - 1)) == 0) {
+        control.addNodes(nodes - reported);
+        reported = nodes;
+        if (control.isStopped()) {
+          return null;
+        }
+      }
+
       Frame cur = stack.peek();
       Node localVee = cur.vee;
-      handlePrune(cur);
+      if (handlePrune(cur) && orderer != null) {
+        orderer.recordCutoff(board, cur.vee.getLastMove(), cur.depth, stack.size() - 1);
+      }
 
-      // Stop if we hit max depth or lack children to evaluate.
-      if (cur.children == null
-          || (maxDepth != 0 && maxDepth < stack.size()) || cur.children.isEmpty()) {
+      // Stop if we lack children to evaluate.
+      if (!cur.hasMoves()) {
         stack.pop();
+        storeFrame(table, cur);
         if (stack.empty()) {
+          if (control != null) {
+            control.addNodes(nodes - reported);
+          }
           return localVee;
         }
 
+        board.unmakeMove(cur.undo);
         updateAbove(cur.isMax, cur.node, stack.peek());
+        continue;
+      }
+
+      // Make the next move and score the resulting board.
+      int move = cur.moves[cur.nextMove++];
+      UndoRecord undo = board.makeMove(move);
+      ++nodes;
+      Node ch = new Node(
+          null,
+          cur.node.getMove() == null ? BoardLayout.unpackMove(move) : cur.node.getMove(),
+          utility(board)
+      );
+      ch.setLastMove(move);
+      int depth = cur.depth - 1;
 
-        // Remove this node from the parent stack's list of kids to process.
-        stack.peek().children.remove(cur.node);
+      // Leaves, finished games and positions the table already knows are
+      // not searched any further. Past the horizon only captures are, until
+      // the position is quiet.
+      boolean horizon = depth <= 0;
+      if (board.isGameOver()
+          || (horizon && (!searchCaptures || depth <= -capturePlies))
+          || (!horizon && tableCutoff(table, board, ch, depth, cur))) {
+        board.unmakeMove(undo);
+        updateAbove(!cur.isMax, ch, cur);
         continue;
       }
 
-      // Add the next child if possible.
-      if (cur.children.size() > 0) {
-        Node ch = cur.children.peek();
-        stack.push(new Frame(
-            ch, expand(ch), !cur.isMax, cur.alpha, cur.beta, startV(!cur.isMax)
-        ));
+      Frame next = horizon
+          ? newQuiescenceFrame(board, ch, undo, !cur.isMax, cur.alpha, cur.beta, depth,
+              moveBuffer(buffers, stack.size()))
+          : newFrame(board, ch, undo, !cur.isMax, cur.alpha, cur.beta, depth, table,
+              moveBuffer(buffers, stack.size()), orderer, stack.size());
+      if (horizon && !next.hasMoves()) {
+        // Quiet, so the position's own score stands.
+        board.unmakeMove(undo);
+        updateAbove(!cur.isMax, ch, cur);
+        continue;
       }
+      stack.push(next);
     }
 
     /* Shouldn't be possible to reach here. */
     return null;
   }
+
+  /**
+    Searches depth 1, 2, 3... until the time runs out, keeping the result of
+    the deepest search that finished.
+
+    Each depth after the first is searched with an aspiration window around
+    the score of the depth before it (see setAspirationWindow()). Searches
+    that split the root across threads use full windows.
+
+    The first depth is always searched to completion so that a move is
+    available no matter how small the budget is. A new depth is not started
+    once half of the budget has been spent, or when it would take longer than
+    what is left, guessing four times as long as the depth before it.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+
+    @return The deepest finished result, or null if there are no moves.
+   */
+  public static SearchResult iterativeDeepening(Node root, int maxDepth, long millis) {
+    return iterativeDeepening(root, maxDepth, millis, 1, Parallelism.ROOT_SPLIT);
+  }
+
+  /**
+    Searches depth 1, 2, 3... until the time runs out, as above, splitting
+    the root moves across a number of threads.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param threads The number of threads to search with.
+
+    @return The deepest finished result, or null if there are no moves.
+   */
+  public static SearchResult iterativeDeepening(
+      Node root, int maxDepth, long millis, int threads) {
+    return iterativeDeepening(root, maxDepth, millis, threads, Parallelism.ROOT_SPLIT);
+  }
+
+  /**
+    Searches depth 1, 2, 3... until the time runs out, as above, using a
+    number of threads.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param threads The number of threads to search with.
+    @param mode How the threads share the work.
+
+    @return The deepest finished result, or null if there are no moves.
+   */
+  public static SearchResult iterativeDeepening(
+      Node root, int maxDepth, long millis, int threads, Parallelism mode) {
+    return iterativeDeepening(root, maxDepth, millis, threads, mode, new SearchControl());
+  }
+
+  /**
+    Searches depth 1, 2, 3... until the time runs out or the control stops
+    the search, as above.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param threads The number of threads to search with.
+    @param mode How the threads share the work.
+    @param control Stops the search early. Its deadline is set from the time
+      budget, so only cancel it or give it a stop condition.
+
+    @return The deepest finished result, or null if there are no moves or the
+      search was stopped during the first depth.
+   */
+  public static SearchResult iterativeDeepening(Node root, int maxDepth, long millis,
+      int threads, Parallelism mode, SearchControl control) {
+    if (threads <= 1) {
+      return iterativeDeepening(
+          root, maxDepth, millis, new TranspositionTable(), null, control);
+    }
+    if (mode == Parallelism.LAZY_SMP) {
+      return LazySmp.search(root, maxDepth, millis, threads, new TranspositionTable(), control);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return iterativeDeepening(
+          root, maxDepth, millis, new TranspositionTable(), pool, control);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+    The iterative deepening loop.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The deepest depth to search, or zero for no limit.
+    @param millis The time budget in milliseconds, or zero for no limit.
+    @param table The transposition table, which orders each depth's moves
+      using what the shallower depths found.
+    @param pool The pool to split the root moves across, or null to search
+      on the calling thread.
+    @param control Stops the search early.
+
+    @return The deepest finished result, or null if there are no moves or the
+      search was stopped during the first depth.
+   */
+  static SearchResult iterativeDeepening(Node root, int maxDepth, long millis,
+      TranspositionTable table, ForkJoinPool pool, SearchControl control) {
+    long start = System.nanoTime();
+    long budget = millis * 1000000L;
+    int depthCap = maxDepth > 0 ? maxDepth : MAX_ITERATIVE_DEPTH;
+
+    // Killers and history carry over from one depth to the next.
+    MoveOrderer orderer = new MoveOrderer();
+
+    SearchResult best = null;
+    for (int depth = 1; depth <= depthCap; ++depth) {
+      long depthStart = System.nanoTime();
+
+      // The first depth gets as long as it needs, so there is always a move.
+      control.setDeadline((best == null || millis <= 0) ? 0 : start + budget);
+      if (control.isCancelled()) {
+        break;
+      }
+      Node decision = pool == null
+          ? aspirationDecision(root, depth, best, table, control, orderer)
+          : RootSplit.decision(root, depth, pool, table,
+              best == null ? BoardLayout.NO_MOVE : best.getNode().getLastMove(), control);
+      if (decision == null || decision.getMove() == null) {
+        // Stopped (or out of moves), so the previous depth stands.
+        break;
+      }
+      best = new SearchResult(decision, depth, control.getNodes());
+      control.reportDepth(best);
+
+      // A forced result will not change with more depth.
+      if (Math.abs(decision.utility()) >= DECISIVE_UTILITY) {
+        break;
+      }
+
+      // Don't start a depth that has no chance of finishing. The search only
+      // notices the deadline every so many nodes, so it cannot be relied on
+      // to cut a hopeless depth short in time.
+      long now = System.nanoTime();
+      if (millis > 0 && (now - start > budget / 2
+          || now - start + 4 * (now - depthStart) > budget)) {
+        break;
+      }
+      if (control.isCancelled()) {
+        break;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+    Searches one depth of iterative deepening within a window around the
+    previous depth's score. Scores rarely move far from one depth to the
+    next, and the narrow window prunes more. A score at or past either end
+    of the window is only a bound, so the depth is searched again with that
+    end twice as far out, until it lands inside. An end more than
+    DECISIVE_UTILITY out is dropped altogether.
+
+    @param root The node holding the board to search from.
+    @param depth The depth to search to.
+    @param previous The result of the depth before, or null.
+    @param table The transposition table to consult and fill.
+    @param control Stops the search and counts its re-searches.
+    @param orderer The move orderer.
+
+    @return The best node, or null if the search was stopped.
+   */
+  private static Node aspirationDecision(Node root, int depth, SearchResult previous,
+      TranspositionTable table, SearchControl control, MoveOrderer orderer) {
+    double width = aspirationWindow;
+    if (previous == null || width <= 0) {
+      return minimaxDecision(root, depth, table, control, orderer);
+    }
+
+    Board board = new Board(root.getBoard(), false);
+    double guess = previous.utility();
+    double below = width;
+    double above = width;
+    while (true) {
+      Node alpha = below > DECISIVE_UTILITY
+          ? Node.getNegInf() : new Node(null, null, guess - below);
+      Node beta = above > DECISIVE_UTILITY
+          ? Node.getInf() : new Node(null, null, guess + above);
+      Node decision = search(board, root, !board.isAttackerTurn(), alpha, beta, depth,
+          table, control, orderer);
+      if (decision == null || decision.getMove() == null) {
+        return decision;
+      }
+
+      double score = decision.utility();
+      if (score <= alpha.utility()) {
+        below *= 2;
+      } else if (score >= beta.utility()) {
+        above *= 2;
+      } else {
+        return decision;
+      }
+      control.addResearch();
+    }
+  }
+
+  /**
+    Determines the best move, splitting the root moves across a number of
+    threads (see RootSplit).
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param threads The number of threads to search with.
+   */
+  public static Node parallelDecision(Node root, int maxDepth, int threads) {
+    ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+    try {
+      return RootSplit.decision(
+          root, maxDepth, pool, new TranspositionTable(), BoardLayout.NO_MOVE, null);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
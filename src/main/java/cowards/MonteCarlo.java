@@ -0,0 +1,409 @@
+package cowards;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+  Monte Carlo tree search, an alternative to the Minimax search that does not
+  use Minimax.utility() at all.
+
+  Each iteration walks down the tree from the root, picking at every node the
+  child with the best UCT score: its win rate plus a bonus that shrinks the
+  more it is visited. A node is given children the second time it is
+  reached. Where the walk stops, the rest of the game is played out with
+  random legal moves, and the result is credited to every node on the path.
+  The move played is the root child visited the most. The iterations play
+  on a PlayoutBoard, so they allocate nothing but the new tree nodes.
+
+  The threads all grow one tree. A thread passing through a node gives it a
+  virtual loss until its playout is done, which makes the node look worse
+  to the other threads so they spread out over the tree rather than all
+  following the same path.
+
+  The search counts one node in its SearchControl per playout, so the node
+  counts and nodes per second of this search are playouts.
+ */
+public class MonteCarlo {
+  /** The weight of the exploration bonus in the UCT score. */
+  public static final double EXPLORATION = Math.sqrt(2);
+
+  /** How many lost visits a node is charged while a playout is under way. */
+  public static final int VIRTUAL_LOSS = 3;
+
+  /** Playouts still going after this many moves count as draws. */
+  public static final int MAX_PLAYOUT_PLIES = 1000;
+
+  /** What a draw is worth to either side. A win is worth one. */
+  public static final double DRAW = 0.5;
+
+  /** How long to wait for the helpers to notice the stop flag. */
+  private static final long STOP_WAIT_MILLIS = 1000;
+
+  /** A position in the tree. */
+  private static final class TreeNode {
+    /** The packed move into the position, or NO_MOVE at the root. */
+    final int move;
+
+    /** Whether the attackers made the move into the position. */
+    final boolean attackerMoved;
+
+    /** The children, or null until the node is expanded. */
+    volatile TreeNode[] children;
+
+    /** Finished visits. Guarded by the node. */
+    int visits;
+
+    /** Wins of the side that moved into the position. Guarded by the node. */
+    double wins;
+
+    /** Visits still under way. Guarded by the node. */
+    int pending;
+
+    /** Constructor. */
+    TreeNode(int mv, boolean attacker) {
+      move = mv;
+      attackerMoved = attacker;
+    }
+
+    /**
+      Returns the UCT score of the node, counting the visits under way as
+      losses.
+
+      @param logParent The log of the parent's visits.
+     */
+    synchronized double uct(double logParent) {
+      int seen = visits + VIRTUAL_LOSS * pending;
+      if (seen == 0) {
+        return Double.POSITIVE_INFINITY;
+      }
+      return wins / seen + EXPLORATION * Math.sqrt(logParent / seen);
+    }
+
+    /** Marks a visit as under way. */
+    synchronized void enter() {
+      ++pending;
+    }
+
+    /**
+      Finishes a visit.
+
+      @param defenderResult What the playout was worth to the defenders.
+     */
+    synchronized void leave(double defenderResult) {
+      --pending;
+      ++visits;
+      wins += attackerMoved ? 1 - defenderResult : defenderResult;
+    }
+
+    /** Returns the number of finished visits. */
+    synchronized int getVisits() {
+      return visits;
+    }
+
+    /** Returns the defenders' share of the finished visits. */
+    synchronized double defenderRate() {
+      double rate = visits == 0 ? DRAW : wins / visits;
+      return attackerMoved ? 1 - rate : rate;
+    }
+
+    /**
+      Gives the node its children, unless another thread already has.
+
+      @param board The board, at the node's position.
+      @param moves A buffer to generate the moves into.
+
+      @return The children.
+     */
+    TreeNode[] expand(PlayoutBoard board, int[] moves) {
+      TreeNode[] kids = children;
+      if (kids != null) {
+        return kids;
+      }
+
+      synchronized (this) {
+        if (children == null) {
+          int count = board.generateMoves(moves);
+          boolean attacker = board.isAttackerTurn();
+          TreeNode[] created = new TreeNode[count];
+          for (int i = 0; i < count; ++i) {
+            created[i] = new TreeNode(moves[i], attacker);
+          }
+          children = created;
+        }
+        return children;
+      }
+    }
+  }
+
+  /** The root of the tree. */
+  private final TreeNode root;
+
+  /** The board at the root. Each thread copies it. */
+  private final PlayoutBoard rootBoard;
+
+  /** Stops every thread. */
+  private final SearchControl control;
+
+  /** The most playouts to run, or zero for no limit. */
+  private final long maxPlayouts;
+
+  /** The playouts the threads have started. */
+  private final AtomicLong started = new AtomicLong(0);
+
+  /** Constructor. */
+  private MonteCarlo(PlayoutBoard board, long playouts, SearchControl sc) {
+    rootBoard = board;
+    root = new TreeNode(BoardLayout.NO_MOVE, !board.isAttackerTurn());
+    maxPlayouts = playouts;
+    control = sc;
+  }
+
+  /**
+    Determines the best move by Monte Carlo tree search.
+
+    @param root The node holding the board to search from.
+    @param millis How long to search in milliseconds.
+    @param threads The number of threads to search with, counting the
+      calling thread.
+
+    @return The best move, or null if there are no moves.
+   */
+  public static SearchResult decision(Node root, long millis, int threads) {
+    return decision(root, millis, 0, threads, new SearchControl());
+  }
+
+  /**
+    Determines the best move by Monte Carlo tree search, until the time or
+    the playouts run out, or the control stops the search. Unlike the
+    Minimax searches, a stopped search still gives the best move found.
+
+    @param root The node holding the board to search from.
+    @param millis How long to search in milliseconds, or zero for no limit.
+    @param playouts The most playouts to run, or zero for no limit.
+    @param threads The number of threads to search with, counting the
+      calling thread.
+    @param control Stops the search early and counts the playouts. Its
+      deadline is set from the time limit, so only cancel it or give it a
+      stop condition.
+
+    @return The best move, or null if there are no moves or not a single
+      playout was run.
+   */
+  public static SearchResult decision(Node root, long millis, long playouts, int threads,
+      SearchControl control) {
+    PlayoutBoard board = new PlayoutBoard(root.getBoard());
+    if (board.isGameOver()) {
+      return null;
+    }
+
+    control.setDeadline(millis > 0 ? System.nanoTime() + millis * 1000000L : 0);
+    MonteCarlo search = new MonteCarlo(board, playouts, new SearchControl(null, control));
+    search.root.expand(board, new int[BoardLayout.MAX_MOVES]);
+    if (search.root.children.length == 0) {
+      return null;
+    }
+
+    ExecutorService helpers = Executors.newFixedThreadPool(Math.max(threads - 1, 1));
+    for (int i = 1; i < threads; ++i) {
+      helpers.execute(search::run);
+    }
+
+    try {
+      search.run();
+    } finally {
+      search.control.cancel();
+      helpers.shutdown();
+      try {
+        helpers.awaitTermination(STOP_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ix) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    return search.result();
+  }
+
+  /** Runs iterations on the calling thread until the search is stopped. */
+  private void run() {
+    PlayoutBoard board = new PlayoutBoard();
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    ArrayList<TreeNode> path = new ArrayList<TreeNode>();
+    Random random = ThreadLocalRandom.current();
+
+    while (!control.isStopped()) {
+      // Claim a playout before running it, so the limit is never passed.
+      if (maxPlayouts > 0 && started.incrementAndGet() > maxPlayouts) {
+        break;
+      }
+      control.addNodes(1);
+
+      board.copy(rootBoard);
+      iterate(board, moves, path, random);
+      path.clear();
+    }
+  }
+
+  /**
+    Runs one iteration: walks down the tree, plays the game out and credits
+    the result to the path.
+
+    @param board The board at the root. The iteration plays on it.
+    @param moves A buffer to generate moves into.
+    @param path The nodes visited, filled by the iteration.
+    @param random Picks the playout moves.
+   */
+  private void iterate(PlayoutBoard board, int[] moves, ArrayList<TreeNode> path,
+      Random random) {
+    TreeNode node = root;
+    node.enter();
+    path.add(node);
+
+    // Walk down to a position not visited before, or the end of the game.
+    boolean reachedNew = false;
+    while (!reachedNew && !board.isGameOver()) {
+      TreeNode[] kids = node.expand(board, moves);
+      if (kids.length == 0) {
+        break;
+      }
+
+      node = select(node, kids);
+      reachedNew = node.getVisits() == 0;
+      node.enter();
+      path.add(node);
+      board.makeMove(node.move);
+    }
+
+    double result = playout(board, moves, random);
+    for (TreeNode visited : path) {
+      visited.leave(result);
+    }
+  }
+
+  /**
+    Returns the child with the best UCT score. Ties go to the first.
+
+    @param parent The node whose children to pick from.
+    @param kids The children.
+   */
+  private static TreeNode select(TreeNode parent, TreeNode[] kids) {
+    double logParent = Math.log(Math.max(parent.getVisits(), 1));
+    TreeNode best = kids[0];
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (TreeNode kid : kids) {
+      double score = kid.uct(logParent);
+      if (score > bestScore) {
+        best = kid;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  /**
+    Plays random legal moves from the position on the board until the game
+    ends.
+
+    @param board The board to play on.
+    @param moves A buffer of at least MAX_MOVES to generate moves into.
+    @param random Picks the moves.
+
+    @return What the game was worth to the defenders: one for a win, zero
+      for a loss and DRAW for a draw.
+   */
+  public static double playout(PlayoutBoard board, int[] moves, Random random) {
+    if (!board.playRandom(random, moves, MAX_PLAYOUT_PLIES)) {
+      return DRAW;
+    }
+
+    if (!board.isGameOver()) {
+      // Unable to move, so the side to move loses.
+      return board.isAttackerTurn() ? 1 : 0;
+    }
+    // The side left to move is the side that won.
+    if (board.isDraw()) {
+      return DRAW;
+    }
+    return board.isAttackerTurn() ? 0 : 1;
+  }
+
+  /**
+    Plays random legal moves from the position on a full Board until the
+    game ends. This is what playouts cost before PlayoutBoard, and is kept
+    to check and measure it against.
+
+    @param board The board to play on.
+    @param moves A buffer to generate moves into.
+    @param random Picks the moves.
+    @param undos Where to record the moves made, or null to leave them made.
+
+    @return What the game was worth to the defenders: one for a win, zero
+      for a loss and DRAW for a draw.
+   */
+  public static double playout(Board board, int[] moves, Random random,
+      ArrayList<UndoRecord> undos) {
+    for (int ply = 0; ply < MAX_PLAYOUT_PLIES; ++ply) {
+      if (board.isGameOver()) {
+        // The side left to move is the side that won.
+        if (board.isDraw()) {
+          return DRAW;
+        }
+        return board.isAttackerTurn() ? 0 : 1;
+      }
+
+      int count = Minimax.generateMoves(board, moves);
+      if (count == 0) {
+        // Unable to move, so the side to move loses.
+        return board.isAttackerTurn() ? 1 : 0;
+      }
+
+      UndoRecord undo = board.makeMove(moves[random.nextInt(count)]);
+      if (undos != null) {
+        undos.add(undo);
+      }
+    }
+
+    return DRAW;
+  }
+
+  /** Returns the root child visited the most. */
+  private SearchResult result() {
+    TreeNode best = null;
+    int depth = 0;
+    for (TreeNode kid : root.children) {
+      if (best == null || kid.getVisits() > best.getVisits()) {
+        best = kid;
+      }
+    }
+    if (best.getVisits() == 0) {
+      return null;
+    }
+
+    // Report how far down the most visited line the tree reaches.
+    for (TreeNode line = best; line != null; line = mostVisited(line)) {
+      ++depth;
+    }
+
+    Node chosen = new Node(null, BoardLayout.unpackMove(best.move), best.defenderRate());
+    chosen.setLastMove(best.move);
+    return new SearchResult(chosen, depth, control.getNodes());
+  }
+
+  /** Returns the most visited child of a node, or null if it has none. */
+  private static TreeNode mostVisited(TreeNode node) {
+    TreeNode[] kids = node.children;
+    TreeNode best = null;
+    if (kids != null) {
+      for (TreeNode kid : kids) {
+        if (kid.getVisits() > 0 && (best == null || kid.getVisits() > best.getVisits())) {
+          best = kid;
+        }
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,158 @@
+package cowards;
+
+import java.util.Arrays;
+
+/**
+  Puts the moves of a position in the order the search should try them.
+
+  Alpha-beta prunes the most when the best move comes first, so moves are
+  tried in this order:
+
+    1. the best move the transposition table remembers for the position,
+    2. moves that capture (see BoardProcessor.isCaptureMove),
+    3. the killer moves of the ply, quiet moves that caused a cutoff in a
+       sibling position,
+    4. everything else, by the history table: how often and how deep each
+       from/to pair has caused a cutoff anywhere in the search.
+
+  Moves that score the same keep the generator's order. An orderer keeps its
+  killers and history from one search to the next, so one instance should
+  follow a game through iterative deepening. It is not thread safe; each
+  search thread needs its own.
+ */
+public class MoveOrderer extends BoardLayout {
+  /** The number of plies killer moves are kept for. */
+  public static final int MAX_PLY = 64;
+
+  /** The number of killer moves kept per ply. */
+  public static final int KILLERS = 2;
+
+  /** History scores are halved once one reaches this. */
+  private static final int HISTORY_LIMIT = 1 << 20;
+
+  private static final int TABLE_SCORE = Integer.MAX_VALUE;
+  private static final int CAPTURE_SCORE = 1 << 30;
+  private static final int KILLER_SCORE = 1 << 29;
+
+  /** The killer moves of each ply, newest first. */
+  private final int[][] killers = new int[MAX_PLY][KILLERS];
+
+  /** Cutoff credit for each from/to pair, indexed by from * SQUARE_COUNT + to. */
+  private final int[] history = new int[SQUARE_COUNT * SQUARE_COUNT];
+
+  /** The scores of the moves being ordered, parallel to the moves. */
+  private final int[] scores = new int[MAX_MOVES];
+
+  /** Constructor. */
+  public MoveOrderer() {
+    clear();
+  }
+
+  /** Forgets every killer and all history. */
+  public void clear() {
+    for (int[] ply : killers) {
+      Arrays.fill(ply, NO_MOVE);
+    }
+    Arrays.fill(history, 0);
+  }
+
+  /**
+    Sorts the moves of the position on the board, best first.
+
+    @param board The board the moves are for.
+    @param moves The packed moves.
+    @param count The number of moves.
+    @param tableMove The move the transposition table suggests, or NO_MOVE.
+    @param ply How many moves the position is below the root.
+   */
+  public void order(Board board, int[] moves, int count, int tableMove, int ply) {
+    int[] plyKillers = ply < MAX_PLY ? killers[ply] : null;
+    for (int i = 0; i < count; ++i) {
+      scores[i] = score(board, moves[i], tableMove, plyKillers);
+    }
+
+    // Insertion sort: stable, and the lists are short.
+    for (int i = 1; i < count; ++i) {
+      int move = moves[i];
+      int score = scores[i];
+      int at = i - 1;
+      while (at >= 0 && scores[at] < score) {
+        moves[at + 1] = moves[at];
+        scores[at + 1] = scores[at];
+        --at;
+      }
+      moves[at + 1] = move;
+      scores[at + 1] = score;
+    }
+  }
+
+  /**
+    Credits a move with causing a cutoff.
+
+    @param board The board the move was made from.
+    @param move The packed move.
+    @param depth How many levels were left to search below the position.
+    @param ply How many moves the position is below the root.
+   */
+  public void recordCutoff(Board board, int move, int depth, int ply) {
+    // Captures are put first anyway.
+    if (move == NO_MOVE || BoardProcessor.isCaptureMove(board, move)) {
+      return;
+    }
+
+    if (ply < MAX_PLY && killers[ply][0] != move) {
+      System.arraycopy(killers[ply], 0, killers[ply], 1, KILLERS - 1);
+      killers[ply][0] = move;
+    }
+
+    int index = historyIndex(move);
+    history[index] += depth * depth;
+    if (history[index] >= HISTORY_LIMIT) {
+      for (int i = 0; i < history.length; ++i) {
+        history[i] >>= 1;
+      }
+    }
+  }
+
+  /** Returns whether the move is a killer move at the ply. */
+  public boolean isKiller(int move, int ply) {
+    if (ply >= MAX_PLY) {
+      return false;
+    }
+
+    for (int killer : killers[ply]) {
+      if (killer == move) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the history score of the move. */
+  public int historyScore(int move) {
+    return history[historyIndex(move)];
+  }
+
+  /** Scores a move for ordering. */
+  private int score(Board board, int move, int tableMove, int[] plyKillers) {
+    if (move == tableMove) {
+      return TABLE_SCORE;
+    }
+    if (BoardProcessor.isCaptureMove(board, move)) {
+      return CAPTURE_SCORE;
+    }
+    if (plyKillers != null) {
+      for (int killer : plyKillers) {
+        if (killer == move) {
+          return KILLER_SCORE;
+        }
+      }
+    }
+    return history[historyIndex(move)];
+  }
+
+  /** Returns the history table index of the move. */
+  private static int historyIndex(int move) {
+    return moveFrom(move) * SQUARE_COUNT + moveTo(move);
+  }
+}
@@ -16,6 +16,9 @@ public class Node {
   private int[] move;
   private Board board;
 
+  // The packed move that led from the parent to this node, if any.
+  private int lastMove = BoardLayout.NO_MOVE;
+
   // These are used like singletons.
   private static Node inf;
   private static Node negInf;
@@ -49,7 +52,7 @@ public class Node {
 
   /** Gives a node constructed to be the value negative infinity. */
   public static Node getNegInf() {
-    if (inf == null) {
+    if (negInf == null) {
       negInf = new Node(-2, Double.NEGATIVE_INFINITY, true);
     }
 
@@ -89,6 +92,16 @@ public class Node {
     move = moveIn;
   }
 
+  /** Gets the packed move that led from the parent to this node. */
+  public int getLastMove() {
+    return lastMove;
+  }
+
+  /** Set the packed move that led from the parent to this node. */
+  public void setLastMove(int moveIn) {
+    lastMove = moveIn;
+  }
+
   /** Returns the stored board. */
   public Board getBoard() {
     if (!locked) {
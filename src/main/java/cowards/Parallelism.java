@@ -0,0 +1,12 @@
+package cowards;
+
+/**
+  The ways a multi-threaded search can share its work.
+ */
+public enum Parallelism {
+  /** Split the moves at the root across the threads (see RootSplit). */
+  ROOT_SPLIT,
+
+  /** Run the whole search on every thread over one shared table (see LazySmp). */
+  LAZY_SMP
+}
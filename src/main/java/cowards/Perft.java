@@ -0,0 +1,121 @@
+package cowards;
+
+import java.util.Arrays;
+
+/**
+  Perft (performance test) for the rules engine.
+
+  Walks every sequence of legal moves to a fixed depth and counts the
+  positions at the end of them, along with how many of the last moves
+  captured, made a shield wall capture or ended the game. The counts only
+  depend on the rules, so they make a regression baseline for any change to
+  Board or BoardProcessor, and the timing gives the raw rules throughput.
+
+  Usage: Perft depth [saved game name]
+ */
+public class Perft {
+
+  /** Struct class. */
+  public static class Counts {
+    public long nodes;
+    public long captures;
+    public long shieldWalls;
+    public long gameOvers;
+  }
+
+  /** Constructor. This is a static class. */
+  private Perft() {
+  }
+
+  /**
+    Counts the positions a number of moves ahead.
+
+    @param board The board to start from. It is not changed.
+    @param depth How many moves ahead to look.
+
+    @return The counts for the positions at that depth.
+   */
+  public static Counts perft(Board board, int depth) {
+    Counts counts = new Counts();
+    int[][] buffers = new int[Math.max(depth, 1)][BoardLayout.MAX_MOVES];
+    search(new Board(board, false), depth, buffers, counts);
+    return counts;
+  }
+
+  /**
+    Adds the counts below the position on the board.
+
+    @param board The board, which is left as it was found.
+    @param depth How many more moves to look ahead.
+    @param buffers A move buffer for each ply.
+    @param counts The counts to add to.
+   */
+  private static void search(Board board, int depth, int[][] buffers, Counts counts) {
+    if (depth == 0) {
+      ++counts.nodes;
+      return;
+    }
+    if (board.isGameOver()) {
+      return;
+    }
+
+    int[] moves = buffers[depth - 1];
+    int count = BoardProcessor.generateMoves(board, moves);
+    for (int i = 0; i < count; ++i) {
+      UndoRecord undo = board.makeMove(moves[i]);
+      if (undo == null) {
+        // The generator and the rules disagree.
+        throw new IllegalStateException(
+            "Generated an illegal move: " + Arrays.toString(BoardLayout.unpackMove(moves[i])));
+      }
+
+      if (depth == 1) {
+        counts.captures += undo.isCapture() ? 1 : 0;
+        counts.shieldWalls += undo.isShieldWallCapture() ? 1 : 0;
+        counts.gameOvers += board.isGameOver() ? 1 : 0;
+      }
+      search(board, depth - 1, buffers, counts);
+      board.unmakeMove(undo);
+    }
+  }
+
+  /**
+    Prints the counts for each depth up to the one given, starting from the
+    initial board or a saved game.
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.err.println("Usage: Perft depth [saved game name]");
+      System.exit(1);
+    }
+
+    int depth = Integer.parseInt(args[0]);
+    Board board = null;
+    try {
+      board = args.length > 1
+          ? BoardLoader.loadBoardFromSave(args[1])
+          : new Board(BoardLayout.INITIAL_BOARD);
+    } catch (BoardLoadException lx) {
+      // Reported below.
+    } catch (BadAsciiBoardFormatException bx) {
+      // Reported below.
+    }
+    if (board == null) {
+      System.err.println("Could not load the board.");
+      System.exit(1);
+    }
+
+    System.out.println("depth\tnodes\tcaptures\tshield walls\tgame overs\tms\tnodes/s");
+    for (int d = 1; d <= depth; ++d) {
+      long start = System.nanoTime();
+      Counts counts = perft(board, d);
+      long nanos = Math.max(System.nanoTime() - start, 1);
+      System.out.println(d + "\t" + counts.nodes + "\t" + counts.captures
+          + "\t" + counts.shieldWalls + "\t" + counts.gameOvers
+          + "\t" + nanos / 1000000 + "\t" + counts.nodes * 1000000000L / nanos);
+    }
+
+    // The board's timers would otherwise keep the program running.
+    System.exit(0);
+  }
+}
@@ -0,0 +1,776 @@
+package cowards;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+  A stripped-down board for playing out games fast, such as the random
+  playouts of the Monte Carlo search.
+
+  The position is a byte per square, with a list of each side's pieces for
+  generating moves. There are no timers, no undo records and no history
+  beyond what the rules need, and making a move allocates nothing. Moves are
+  not checked; they must come from generateMoves().
+
+  Every rule follows Board to the letter: the captures, the king capture,
+  shield walls, surrounds, exit forts, repeated moves, repeated defensive
+  positions, the draw after moves without a capture, and losing when unable
+  to move. That includes the way the side to move is left to mark the winner
+  once the game is over. A game played on both boards with the same moves
+  ends the same way.
+ */
+public class PlayoutBoard extends BoardLayout {
+  /** The square contents, matching the order of GridSquareState. */
+  private static final byte EMPTY = 0;
+  private static final byte KING = 1;
+  private static final byte DEFENDER = 2;
+  private static final byte ATTACKER = 3;
+
+  /** The square states, indexed by the contents of a square. */
+  private static final GridSquareState[] STATES = GridSquareState.values();
+
+  /** The indexes of the two sides' piece lists. */
+  private static final int ATTACKING = 0;
+  private static final int DEFENDING = 1;
+
+  /** The moves without a capture after which the game is a draw. */
+  private static final int MAX_MOVES_WO_CAPTURE = Board.MAX_MOVES_WO_CAPTURE;
+
+  /**
+    The random picks of a piece, direction and distance to try before
+    generating every move to pick from.
+   */
+  private static final int RANDOM_TRIES = 32;
+
+  /** The farthest a piece can slide. */
+  private static final int MAX_DISTANCE = 10;
+
+  /** The moves of each side kept for the repetition rule. */
+  private static final int HISTORY = 6;
+
+  /** The most defensive positions that can be remembered at once. */
+  private static final int MAX_FORTS = MAX_MOVES_WO_CAPTURE + 1;
+
+  /** The defending pieces below which repeated positions do not count. */
+  private static final int MIN_FORT_PIECES = 5;
+
+  /**
+    The square next to each square in each direction (NORTH, SOUTH, WEST and
+    EAST, as in BitBoard), or -1 off the board.
+   */
+  private static final int[][] STEP = new int[4][SQUARE_COUNT];
+
+  /** Whether each square is the throne or a corner. */
+  private static final boolean[] SPECIAL = new boolean[SQUARE_COUNT];
+
+  /** Whether each square is a corner. */
+  private static final boolean[] CORNER = new boolean[SQUARE_COUNT];
+
+  static {
+    for (int sq = 0; sq < SQUARE_COUNT; ++sq) {
+      int row = sq / 11;
+      int col = sq % 11;
+      STEP[BitBoard.NORTH][sq] = row > 0 ? sq - 11 : -1;
+      STEP[BitBoard.SOUTH][sq] = row < GRID_ROW_MAX ? sq + 11 : -1;
+      STEP[BitBoard.WEST][sq] = col > 0 ? sq - 1 : -1;
+      STEP[BitBoard.EAST][sq] = col < GRID_COL_MAX ? sq + 1 : -1;
+      SPECIAL[sq] = BitBoard.isSpecial(sq);
+      CORNER[sq] = BitBoard.isCorner(sq);
+    }
+  }
+
+  /** What is on each square. */
+  private final byte[] squares = new byte[SQUARE_COUNT];
+
+  /** The squares of each side's pieces, the king among the defending side's. */
+  private final int[][] pieces = new int[2][SQUARE_COUNT];
+
+  /** The number of pieces of each side. */
+  private final int[] pieceCount = new int[2];
+
+  /** Where each piece is in its side's list. */
+  private final int[] slot = new int[SQUARE_COUNT];
+
+  /**
+    The last moves of each side, oldest first, four ints each in the
+    {toRow, toCol, fromRow, fromCol} form of the Board's history.
+   */
+  private final int[][] history = new int[2][HISTORY * 4];
+
+  /** The number of moves in each side's history. */
+  private final int[] historySize = new int[2];
+
+  /** The defensive positions seen since the last capture, and how often. */
+  private final long[] fortLo = new long[MAX_FORTS];
+  private final long[] fortHi = new long[MAX_FORTS];
+  private final int[] fortTimes = new int[MAX_FORTS];
+  private int fortCount;
+
+  /** Scratch space for the flood fills. */
+  private final int[] fillStack = new int[SQUARE_COUNT];
+  private final int[] fillMark = new int[SQUARE_COUNT];
+  private int fillStamp;
+
+  private int kingSquare;
+  private boolean attackerTurn;
+  private boolean gameOver;
+  private int movesWoCapture;
+
+  /** Constructor for an empty board. Use load() to set it up. */
+  public PlayoutBoard() {
+  }
+
+  /**
+    Copy constructor.
+
+    @param board The board to copy.
+   */
+  public PlayoutBoard(Board board) {
+    load(board);
+  }
+
+  /**
+    Sets the board up as a copy of a Board, rules state and all.
+
+    @param board The board to copy.
+   */
+  public void load(Board board) {
+    pieceCount[ATTACKING] = 0;
+    pieceCount[DEFENDING] = 0;
+    kingSquare = -1;
+    for (int sq = 0; sq < SQUARE_COUNT; ++sq) {
+      squares[sq] = EMPTY;
+      if (board.attackerBits().get(sq)) {
+        place(sq, ATTACKER);
+      } else if (board.defenderBits().get(sq)) {
+        place(sq, DEFENDER);
+      } else if (board.kingBits().get(sq)) {
+        place(sq, KING);
+        kingSquare = sq;
+      }
+    }
+
+    loadHistory(ATTACKING, board.getAttMoves());
+    loadHistory(DEFENDING, board.getDefMoves());
+
+    fortCount = 0;
+    for (Map.Entry<String, Integer> fort : board.getDefensiveBoardPositions().entrySet()) {
+      String key = fort.getKey();
+      long lo = 0;
+      long hi = 0;
+      for (int sq = 0; sq < key.length() && sq < SQUARE_COUNT; ++sq) {
+        if (key.charAt(sq) == '1') {
+          if (sq < 64) {
+            lo |= 1L << sq;
+          } else {
+            hi |= 1L << (sq - 64);
+          }
+        }
+      }
+      if (fortCount < MAX_FORTS) {
+        fortLo[fortCount] = lo;
+        fortHi[fortCount] = hi;
+        fortTimes[fortCount] = fort.getValue();
+        ++fortCount;
+      }
+    }
+
+    attackerTurn = board.isAttackerTurn();
+    gameOver = board.isGameOver();
+    movesWoCapture = board.getMovesWoCapture();
+  }
+
+  /**
+    Sets the board up as a copy of another playout board.
+
+    @param other The board to copy.
+   */
+  public void copy(PlayoutBoard other) {
+    System.arraycopy(other.squares, 0, squares, 0, SQUARE_COUNT);
+    System.arraycopy(other.slot, 0, slot, 0, SQUARE_COUNT);
+    for (int side = ATTACKING; side <= DEFENDING; ++side) {
+      pieceCount[side] = other.pieceCount[side];
+      System.arraycopy(other.pieces[side], 0, pieces[side], 0, pieceCount[side]);
+      historySize[side] = other.historySize[side];
+      System.arraycopy(other.history[side], 0, history[side], 0, historySize[side] * 4);
+    }
+
+    fortCount = other.fortCount;
+    System.arraycopy(other.fortLo, 0, fortLo, 0, fortCount);
+    System.arraycopy(other.fortHi, 0, fortHi, 0, fortCount);
+    System.arraycopy(other.fortTimes, 0, fortTimes, 0, fortCount);
+
+    kingSquare = other.kingSquare;
+    attackerTurn = other.attackerTurn;
+    gameOver = other.gameOver;
+    movesWoCapture = other.movesWoCapture;
+  }
+
+  /** Loads one side's move history from the Board's list. */
+  private void loadHistory(int side, Iterable<int []> moves) {
+    historySize[side] = 0;
+    for (int[] move : moves) {
+      if (historySize[side] == HISTORY) {
+        System.arraycopy(history[side], 4, history[side], 0, (HISTORY - 1) * 4);
+        --historySize[side];
+      }
+      System.arraycopy(move, 0, history[side], historySize[side] * 4, 4);
+      ++historySize[side];
+    }
+  }
+
+  /** Getter for attackerTurn. Once the game is over, it marks the winner. */
+  public boolean isAttackerTurn() {
+    return attackerTurn;
+  }
+
+  /** Getter for gameOver. */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /** Return if too many moves have been made without capture. */
+  public boolean isDraw() {
+    return movesWoCapture >= MAX_MOVES_WO_CAPTURE;
+  }
+
+  /**
+    Returns the state of a square.
+
+    @param index The square index.
+   */
+  public GridSquareState stateAt(int index) {
+    return STATES[squares[index]];
+  }
+
+  /** Returns the number of attackers. */
+  public int attackerCount() {
+    return pieceCount[ATTACKING];
+  }
+
+  /** Returns the number of defenders, counting the king. */
+  public int defendingCount() {
+    return pieceCount[DEFENDING];
+  }
+
+  /**
+    Generates the moves for the side to move, in the same order as
+    BoardProcessor.generateMoves(). Whether the game is over is not checked.
+
+    @param moves The buffer to write the packed moves into, at least
+      MAX_MOVES long.
+
+    @return The number of moves written.
+   */
+  public int generateMoves(int[] moves) {
+    int side = attackerTurn ? ATTACKING : DEFENDING;
+    int count = 0;
+    // The generator goes through the pieces in square order.
+    for (int from = 0; from < SQUARE_COUNT; ++from) {
+      if (!isOwn(squares[from], side)) {
+        continue;
+      }
+
+      boolean king = squares[from] == KING;
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        count = slide(from, dir, king, moves, count);
+      }
+    }
+
+    return count;
+  }
+
+  /**
+    Writes the moves of one piece in one direction, in square order.
+
+    @return The new number of moves in the buffer.
+   */
+  private int slide(int from, int dir, boolean king, int[] moves, int count) {
+    int step = STEP[dir][from];
+    if (dir == BitBoard.NORTH || dir == BitBoard.WEST) {
+      // Square order is the far end first, so find the far end.
+      int end = from;
+      while (STEP[dir][end] >= 0 && squares[STEP[dir][end]] == EMPTY) {
+        end = STEP[dir][end];
+      }
+      int back = dir == BitBoard.NORTH ? BitBoard.SOUTH : BitBoard.EAST;
+      for (int to = end; to != from; to = STEP[back][to]) {
+        if (king || !SPECIAL[to]) {
+          moves[count++] = (from << 8) | to;
+        }
+      }
+      return count;
+    }
+
+    for (int to = step; to >= 0 && squares[to] == EMPTY; to = STEP[dir][to]) {
+      if (king || !SPECIAL[to]) {
+        moves[count++] = (from << 8) | to;
+      }
+    }
+    return count;
+  }
+
+  /** Returns whether the side to move has any move at all. */
+  private boolean hasMoves() {
+    int side = attackerTurn ? ATTACKING : DEFENDING;
+    for (int i = 0; i < pieceCount[side]; ++i) {
+      int from = pieces[side][i];
+      boolean king = squares[from] == KING;
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        for (int to = STEP[dir][from]; to >= 0 && squares[to] == EMPTY; to = STEP[dir][to]) {
+          if (king || !SPECIAL[to]) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+    Makes a move generated by generateMoves(), with every rule Board.move()
+    applies.
+
+    @param move The packed move.
+   */
+  public void makeMove(int move) {
+    int from = moveFrom(move);
+    int to = moveTo(move);
+    int side = attackerTurn ? ATTACKING : DEFENDING;
+
+    byte piece = squares[from];
+    squares[from] = EMPTY;
+    squares[to] = piece;
+    pieces[side][slot[from]] = to;
+    slot[to] = slot[from];
+    if (piece == KING) {
+      kingSquare = to;
+    }
+    addHistory(side, to / 11, to % 11, from / 11, from % 11);
+
+    boolean captured = basicCapture(to);
+    captured |= kingCapture();
+    captured |= shieldWallCapture(to);
+    movesWoCapture = captured ? 0 : movesWoCapture + 1;
+
+    endMove(to);
+  }
+
+  /**
+    Plays random moves until the game ends or a number of moves have been
+    made.
+
+    @param random Picks the moves.
+    @param moves A buffer of at least MAX_MOVES to generate moves into.
+    @param maxPlies The most moves to make.
+
+    @return Whether the game ended. A game can end with the side to move
+      unable to move, without being over.
+   */
+  public boolean playRandom(Random random, int[] moves, int maxPlies) {
+    for (int ply = 0; ply < maxPlies; ++ply) {
+      if (gameOver) {
+        return true;
+      }
+
+      int move = randomMove(random, moves);
+      if (move == NO_MOVE) {
+        return true;
+      }
+      makeMove(move);
+    }
+
+    return gameOver;
+  }
+
+  /**
+    Picks a legal move at random, every move being as likely as any other.
+
+    Rather than generating every move, a piece, a direction and a distance
+    are picked at random until they make a legal move. Each move is one such
+    pick, so each is equally likely. When the picks keep missing, which
+    happens with few moves left, the moves are generated instead.
+
+    @param random Picks the move.
+    @param moves A buffer of at least MAX_MOVES, used if the picks miss.
+
+    @return The packed move, or NO_MOVE if there are no moves.
+   */
+  public int randomMove(Random random, int[] moves) {
+    int side = attackerTurn ? ATTACKING : DEFENDING;
+    int picks = pieceCount[side] * 4 * MAX_DISTANCE;
+    for (int tries = 0; tries < RANDOM_TRIES && picks > 0; ++tries) {
+      int pick = random.nextInt(picks);
+      int from = pieces[side][pick / (4 * MAX_DISTANCE)];
+      int dir = pick / MAX_DISTANCE % 4;
+      int distance = pick % MAX_DISTANCE + 1;
+
+      int to = from;
+      while (distance > 0 && (to = STEP[dir][to]) >= 0 && squares[to] == EMPTY) {
+        --distance;
+      }
+      if (distance == 0 && (squares[from] == KING || !SPECIAL[to])) {
+        return (from << 8) | to;
+      }
+    }
+
+    int count = generateMoves(moves);
+    return count == 0 ? NO_MOVE : moves[random.nextInt(count)];
+  }
+
+  /** Puts a piece on an empty square. */
+  private void place(int sq, byte piece) {
+    int side = piece == ATTACKER ? ATTACKING : DEFENDING;
+    squares[sq] = piece;
+    slot[sq] = pieceCount[side];
+    pieces[side][pieceCount[side]++] = sq;
+  }
+
+  /** Takes the piece off a square. */
+  private void remove(int sq) {
+    int side = squares[sq] == ATTACKER ? ATTACKING : DEFENDING;
+    int last = pieces[side][--pieceCount[side]];
+    pieces[side][slot[sq]] = last;
+    slot[last] = slot[sq];
+    squares[sq] = EMPTY;
+    if (sq == kingSquare) {
+      kingSquare = -1;
+    }
+  }
+
+  /** Records a move in a side's history, dropping the oldest once full. */
+  private void addHistory(int side, int toRow, int toCol, int fromRow, int fromCol) {
+    int[] moves = history[side];
+    if (historySize[side] == HISTORY) {
+      System.arraycopy(moves, 4, moves, 0, (HISTORY - 1) * 4);
+      --historySize[side];
+    }
+    int at = historySize[side]++ * 4;
+    moves[at] = toRow;
+    moves[at + 1] = toCol;
+    moves[at + 2] = fromRow;
+    moves[at + 3] = fromCol;
+  }
+
+  /** Returns whether a piece belongs to a side. */
+  private static boolean isOwn(byte piece, int side) {
+    return side == ATTACKING ? piece == ATTACKER : piece == DEFENDER || piece == KING;
+  }
+
+  /** Returns the piece on a square, or EMPTY off the board. */
+  private byte safeSquare(int row, int col) {
+    return Board.inBounds(row, col) ? squares[squareIndex(row, col)] : EMPTY;
+  }
+
+  /**
+    Captures the enemy pieces sandwiched between the piece that just moved
+    and another piece of its side, or an empty throne or corner. The king is
+    not captured this way.
+   */
+  private boolean basicCapture(int to) {
+    byte victim = attackerTurn ? DEFENDER : ATTACKER;
+    int side = attackerTurn ? ATTACKING : DEFENDING;
+    boolean captured = false;
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      int sq = STEP[dir][to];
+      if (sq < 0 || squares[sq] != victim) {
+        continue;
+      }
+
+      int beyond = STEP[dir][sq];
+      if (beyond >= 0 && (isOwn(squares[beyond], side)
+          || (SPECIAL[beyond] && squares[beyond] == EMPTY))) {
+        remove(sq);
+        captured = true;
+      }
+    }
+    return captured;
+  }
+
+  /** Captures the king if attackers surround it away from the edge. */
+  private boolean kingCapture() {
+    if (kingSquare < 0 || BitBoard.isEdge(kingSquare)) {
+      return false;
+    }
+
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      if (squares[STEP[dir][kingSquare]] != ATTACKER) {
+        return false;
+      }
+    }
+
+    remove(kingSquare);
+    gameOver = true;
+    return true;
+  }
+
+  /** Checks both ways along the edge for a shield wall capture. */
+  private boolean shieldWallCapture(int to) {
+    int row = to / 11;
+    int col = to % 11;
+    boolean sideEdge = (col == 0 || col == GRID_COL_MAX) && row != 0 && row != GRID_ROW_MAX;
+    boolean endEdge = (row == 0 || row == GRID_ROW_MAX) && col != 0 && col != GRID_COL_MAX;
+    if (sideEdge) {
+      boolean wall = isShieldWall(row, col, -1, 0);
+      return isShieldWall(row, col, 1, 0) | wall;
+    }
+    if (endEdge) {
+      boolean wall = isShieldWall(row, col, 0, 1);
+      return isShieldWall(row, col, 0, -1) | wall;
+    }
+    return false;
+  }
+
+  /**
+    Checks one way along the edge for a shield wall, and captures it. This
+    follows Board's walk square for square.
+
+    @param row The row of the move.
+    @param col The column of the move.
+    @param rowDelta The row step along the edge.
+    @param colDelta The column step along the edge.
+   */
+  private boolean isShieldWall(int row, int col, int rowDelta, int colDelta) {
+    boolean shieldAttack = squares[squareIndex(row, col)] == ATTACKER;
+    // The wall is the line of pieces one square in from the edge.
+    int wallRow = col == 0 ? 0 : col == GRID_COL_MAX ? 0 : row == 0 ? 1 : -1;
+    int wallCol = col == 0 ? 1 : col == GRID_COL_MAX ? -1 : 0;
+
+    int curRow = row + rowDelta;
+    int curCol = col + colDelta;
+    byte cur = safeSquare(curRow, curCol);
+    boolean shieldWall = false;
+    int opponentCount = 0;
+    while (cur != EMPTY) {
+      byte wallPiece = rowDelta != 0
+          ? safeSquare(curRow, col + wallCol) : safeSquare(row + wallRow, curCol);
+      boolean multType = shieldAttack ? cur != ATTACKER : cur == ATTACKER;
+      boolean wallType = shieldAttack
+          ? wallPiece == ATTACKER : wallPiece == DEFENDER || wallPiece == KING;
+      if (multType) {
+        if (wallType) {
+          opponentCount++;
+        } else {
+          break;
+        }
+      } else if (opponentCount >= 2) {
+        shieldWall = true;
+        break;
+      }
+
+      curRow += rowDelta;
+      curCol += colDelta;
+      cur = safeSquare(curRow, curCol);
+    }
+
+    shieldWall |= Board.inBounds(curRow, curCol)
+        && CORNER[squareIndex(curRow, curCol)] && opponentCount >= 2;
+
+    if (shieldWall) {
+      curRow -= rowDelta;
+      curCol -= colDelta;
+      while (row != curRow || col != curCol) {
+        int sq = squareIndex(curRow, curCol);
+        if (squares[sq] != KING && squares[sq] != EMPTY) {
+          remove(sq);
+        }
+        curRow -= rowDelta;
+        curCol -= colDelta;
+      }
+    }
+    return shieldWall;
+  }
+
+  /** Ends the game if the move won or lost it, otherwise passes the turn. */
+  private void endMove(int to) {
+    if (gameOver) {
+      // The king was captured.
+    } else if (squares[to] == KING && CORNER[to]) {
+      gameOver = true;
+    } else if (attackerTurn && isSurrounded()) {
+      gameOver = true;
+    } else if (!attackerTurn && storeDefensivePosition()) {
+      attackerTurn = true;
+      gameOver = true;
+    } else {
+      attackerTurn = !attackerTurn;
+      if (tooManyRepeats()) {
+        gameOver = true;
+      }
+      if (isDraw()) {
+        gameOver = true;
+      }
+      if (!hasMoves()) {
+        attackerTurn = !attackerTurn;
+        gameOver = true;
+      }
+      if (isExitFort()) {
+        attackerTurn = false;
+        gameOver = true;
+      }
+    }
+  }
+
+  /**
+    Returns whether the side that just moved has gone back and forth between
+    the same two moves, as BoardProcessor.tooManyRepeats() decides it.
+   */
+  private boolean tooManyRepeats() {
+    int side = attackerTurn ? DEFENDING : ATTACKING;
+    if (historySize[side] < HISTORY) {
+      return false;
+    }
+
+    int[] moves = history[side];
+    for (int i = 2; i < HISTORY; ++i) {
+      int at = i * 4;
+      int like = (i % 2) * 4;
+      // The odd moves' last column is checked against the first move's.
+      if (moves[at] != moves[like] || moves[at + 1] != moves[like + 1]
+          || moves[at + 2] != moves[like + 2] || moves[at + 3] != moves[3]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+    Counts the defensive position, as BoardProcessor.storeDefensiveBoard()
+    does.
+
+    @return Whether the position has now come up three times without a
+      capture, which loses the game for the defenders.
+   */
+  private boolean storeDefensivePosition() {
+    if (pieceCount[DEFENDING] < MIN_FORT_PIECES) {
+      return false;
+    }
+    if (movesWoCapture == 0) {
+      fortCount = 0;
+      return false;
+    }
+
+    long lo = 0;
+    long hi = 0;
+    for (int i = 0; i < pieceCount[DEFENDING]; ++i) {
+      int sq = pieces[DEFENDING][i];
+      if (sq < 64) {
+        lo |= 1L << sq;
+      } else {
+        hi |= 1L << (sq - 64);
+      }
+    }
+
+    for (int i = 0; i < fortCount; ++i) {
+      if (fortLo[i] == lo && fortHi[i] == hi) {
+        if (fortTimes[i] == 2) {
+          return true;
+        }
+        ++fortTimes[i];
+        return false;
+      }
+    }
+
+    if (fortCount < MAX_FORTS) {
+      fortLo[fortCount] = lo;
+      fortHi[fortCount] = hi;
+      fortTimes[fortCount] = 1;
+      ++fortCount;
+    }
+    return false;
+  }
+
+  /**
+    Returns whether the attackers have closed every defending piece off from
+    the edge, as BoardProcessor.isSurrounded() decides it.
+   */
+  private boolean isSurrounded() {
+    if (kingSquare < 0) {
+      return false;
+    }
+
+    // Flood fill from the king, with attackers as barriers.
+    int stamp = ++fillStamp;
+    int top = 0;
+    fillStack[top++] = kingSquare;
+    fillMark[kingSquare] = stamp;
+    while (top > 0) {
+      int sq = fillStack[--top];
+      if (BitBoard.isEdge(sq)) {
+        return false;
+      }
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        int next = STEP[dir][sq];
+        if (next >= 0 && fillMark[next] != stamp && squares[next] != ATTACKER) {
+          fillMark[next] = stamp;
+          fillStack[top++] = next;
+        }
+      }
+    }
+
+    for (int i = 0; i < pieceCount[DEFENDING]; ++i) {
+      if (fillMark[pieces[DEFENDING][i]] != stamp) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether the king has made an exit fort, as Board decides it. */
+  private boolean isExitFort() {
+    if (kingSquare < 0 || !BitBoard.isEdge(kingSquare) || CORNER[kingSquare]) {
+      return false;
+    }
+
+    boolean canMove = false;
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      int next = STEP[dir][kingSquare];
+      canMove |= next >= 0 && squares[next] == EMPTY;
+    }
+    return canMove && isKingGuarded();
+  }
+
+  /**
+    Returns whether no attacker can reach the king through anything but
+    defenders that could be captured, as BoardProcessor.isKingGuarded()
+    decides it.
+   */
+  private boolean isKingGuarded() {
+    if (pieceCount[ATTACKING] <= 2 || kingSquare < 0) {
+      return true;
+    }
+
+    int stamp = ++fillStamp;
+    int top = 0;
+    fillStack[top++] = kingSquare;
+    fillMark[kingSquare] = stamp;
+    while (top > 0) {
+      int sq = fillStack[--top];
+      for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+        int next = STEP[dir][sq];
+        if (next < 0 || fillMark[next] == stamp) {
+          continue;
+        }
+        if (squares[next] == ATTACKER) {
+          return false;
+        }
+        if (squares[next] != DEFENDER || isCapturableGuard(next)) {
+          fillMark[next] = stamp;
+          fillStack[top++] = next;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether a defender has all four sides open, so it can be captured. */
+  private boolean isCapturableGuard(int sq) {
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      int next = STEP[dir][sq];
+      if (next < 0 || squares[next] != EMPTY) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
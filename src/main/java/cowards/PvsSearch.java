@@ -0,0 +1,484 @@
+package cowards;
+
+/**
+  Principal variation search, a recursive negamax alternative to the Minimax
+  search.
+
+  Scores are from the side to move's point of view, so one routine serves
+  both sides: a position is worth the negation of its best child. The first
+  move of each position, which the move ordering expects to be best, is
+  searched with the full window. Every other move is first searched with a
+  null window just above alpha, which only answers whether it beats the
+  first move. Only the moves that do are searched again with the full
+  window. Good ordering makes those re-searches rare, and null windows prune
+  far more than full ones.
+
+  Past the depth limit, only captures are searched until the position is
+  quiet (see Minimax.setQuiescence()), with the same stand pat rule as the
+  Minimax search.
+
+  Two unsafe prunings can be turned on and off (both are on by default):
+
+    Null move pruning lets the side to move pass, and searches the position
+    to a reduced depth with a null window at beta. If even passing holds
+    beta, a real move almost surely does too, and the position is cut off.
+    It is not tried where the king is close to escaping (see
+    BoardProcessor.isKingNearEscape()), or twice in a row.
+
+    Late move reductions search the quiet moves that come after the first
+    few, which the ordering expects to be poor, one level shallower. A move
+    that beats alpha anyway is searched again to the full depth.
+
+  The transposition table entries are kept from the defenders' point of view,
+  as the Minimax search keeps them, so the two searches can share a table.
+  With both prunings off, the chosen move has the same score as
+  Minimax.minimaxDecision() finds at the same depth, and the node counts of
+  the two can be compared through SearchResult.getNodes().
+ */
+public class PvsSearch {
+  /**
+    The width of the null window. Far below any meaningful score change, but
+    far above the rounding of the scores in the transposition table.
+   */
+  public static final double NULL_WINDOW = 1e-3;
+
+  /** How much shallower the search after a null move is. */
+  public static final int NULL_MOVE_REDUCTION = 2;
+
+  /** The least depth left at which a null move is tried. */
+  public static final int NULL_MOVE_MIN_DEPTH = 3;
+
+  /** How many moves of each position are searched before any is reduced. */
+  public static final int FULL_DEPTH_MOVES = 3;
+
+  /** The least depth left at which late moves are reduced. */
+  public static final int REDUCTION_MIN_DEPTH = 3;
+
+  /** Whether null move pruning is on. */
+  private static boolean nullMove = true;
+
+  /** Whether late move reductions are on. */
+  private static boolean lateMoveReductions = true;
+
+  /** The board being searched. Moves are made and taken back on it. */
+  private final Board board;
+
+  /** The transposition table, or null. */
+  private final TranspositionTable table;
+
+  /** Stops the search, or null. */
+  private final SearchControl control;
+
+  /** The move orderer. */
+  private final MoveOrderer orderer;
+
+  /** One move buffer per ply. */
+  private final int[][] buffers;
+
+  /** Nodes visited, and how many of them have been passed to the control. */
+  private long nodes;
+  private long reported;
+
+  /** Recursive calls since the control was last checked. */
+  private int steps;
+
+  /** Set once the control stops the search. */
+  private boolean stopped;
+
+  /** The sign that turns a defenders' score into the root mover's. */
+  private final int rootSign;
+
+  /** The quiescence settings, fixed for the whole search. */
+  private final boolean quiescence;
+  private final int quiescencePlies;
+
+  /** The pruning settings, fixed for the whole search. */
+  private final boolean pruneNullMove;
+  private final boolean reduceLateMoves;
+
+  /** Constructor. */
+  private PvsSearch(Board bd, int depth, TranspositionTable tb, SearchControl sc,
+      MoveOrderer mo) {
+    board = bd;
+    table = tb;
+    control = sc;
+    orderer = mo;
+    rootSign = bd.isAttackerTurn() ? -1 : 1;
+    quiescence = Minimax.isQuiescence();
+    quiescencePlies = Minimax.getQuiescencePlies();
+    pruneNullMove = nullMove;
+    reduceLateMoves = lateMoveReductions;
+    buffers = new int[depth + 1 + quiescencePlies][BoardLayout.MAX_MOVES];
+  }
+
+  /**
+    Turn null move pruning on or off for every search started after the call.
+
+    @param enabled Whether to try passing before searching the moves.
+   */
+  public static void setNullMove(boolean enabled) {
+    nullMove = enabled;
+  }
+
+  /** Returns whether null move pruning is on. */
+  public static boolean isNullMove() {
+    return nullMove;
+  }
+
+  /**
+    Turn late move reductions on or off for every search started after the
+    call.
+
+    @param enabled Whether to search late quiet moves less deeply.
+   */
+  public static void setLateMoveReductions(boolean enabled) {
+    lateMoveReductions = enabled;
+  }
+
+  /** Returns whether late move reductions are on. */
+  public static boolean isLateMoveReductions() {
+    return lateMoveReductions;
+  }
+
+  /**
+    Determines the best move by principal variation search.
+
+    @param root The node holding the board to search from.
+    @param depth The depth to search to, at least one.
+   */
+  public static SearchResult decision(Node root, int depth) {
+    return decision(
+        root, depth, new TranspositionTable(), new SearchControl(), new MoveOrderer());
+  }
+
+  /**
+    Determines the best move by principal variation search.
+
+    @param root The node holding the board to search from.
+    @param depth The depth to search to, at least one.
+    @param table The transposition table to consult and fill, or null.
+    @param control Stops the search and counts its nodes.
+    @param orderer The move orderer, which may carry killers and history over
+      from earlier searches.
+
+    @return The best move, a node without a move if there are no moves, or
+      null if the search was stopped.
+   */
+  static SearchResult decision(Node root, int depth, TranspositionTable table,
+      SearchControl control, MoveOrderer orderer) {
+    Board board = new Board(root.getBoard(), false);
+    PvsSearch search = new PvsSearch(board, Math.max(depth, 1), table, control, orderer);
+    Node best = search.searchRoot(Math.max(depth, 1));
+    control.addNodes(search.nodes - search.reported);
+    if (best == null) {
+      return null;
+    }
+
+    return new SearchResult(best, depth, control.getNodes());
+  }
+
+  /**
+    Returns the sign that turns a defenders' score into the mover's. This
+    goes by the ply, since the board does not always pass the turn on when a
+    move ends the game.
+
+    @param ply How many moves the position is below the root.
+   */
+  private int sign(int ply) {
+    return (ply & 1) == 0 ? rootSign : -rootSign;
+  }
+
+  /** Searches the root, which is never cut off by the table. */
+  private Node searchRoot(int depth) {
+    int sign = sign(0);
+    int[] moves = buffers[0];
+    int count = Minimax.generateMoves(board, moves);
+    if (count == 0) {
+      return Minimax.startV(sign > 0);
+    }
+
+    long entry = table == null ? TranspositionTable.MISS : table.probe(board.getHash());
+    orderer.order(board, moves, count, tableMove(entry), 0);
+
+    double alpha = Double.NEGATIVE_INFINITY;
+    double beta = Double.POSITIVE_INFINITY;
+    int bestMove = BoardLayout.NO_MOVE;
+    for (int i = 0; i < count; ++i) {
+      double score = searchChild(moves[i], i == 0, depth, alpha, beta, 0, 0);
+      if (stopped) {
+        return null;
+      }
+      if (score > alpha) {
+        alpha = score;
+        bestMove = moves[i];
+      }
+    }
+
+    store(depth, alpha, Double.NEGATIVE_INFINITY, beta, bestMove, 0);
+    Node best = new Node(null, BoardLayout.unpackMove(bestMove), sign * alpha);
+    best.setLastMove(bestMove);
+    return best;
+  }
+
+  /**
+    Searches the position on the board.
+
+    @param depth How many more levels to search.
+    @param alpha The lower end of the window, from the mover's point of view.
+    @param beta The upper end of the window.
+    @param ply How many moves the position is below the root.
+    @param nullAllowed Whether the mover may pass. False right after a pass.
+
+    @return The score from the mover's point of view. Outside the window it
+      is only a bound.
+   */
+  private double search(int depth, double alpha, double beta, int ply, boolean nullAllowed) {
+    if (checkStopped()) {
+      return 0;
+    }
+
+    int sign = sign(ply);
+    if (board.isGameOver()) {
+      return sign * Minimax.utility(board);
+    }
+    if (depth <= 0) {
+      return quiescence ? quiesce(alpha, beta, ply, 0) : sign * Minimax.utility(board);
+    }
+
+    long entry = table == null ? TranspositionTable.MISS : table.probe(board.getHash());
+    if (entry != TranspositionTable.MISS && TranspositionTable.getDepth(entry) >= depth) {
+      double stored = sign * TranspositionTable.getScore(entry);
+      byte bound = moverBound(TranspositionTable.getBound(entry), sign);
+      if (bound == TranspositionTable.EXACT
+          || (bound == TranspositionTable.LOWER && stored >= beta)
+          || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+        return stored;
+      }
+    }
+
+    if (pruneNullMove && nullAllowed && depth >= NULL_MOVE_MIN_DEPTH
+        && beta < Double.POSITIVE_INFINITY && sign * Minimax.utility(board) >= beta
+        && !BoardProcessor.isKingNearEscape(board)) {
+      double score = searchNullMove(depth, beta, ply);
+      if (stopped) {
+        return 0;
+      }
+      if (score >= beta) {
+        return beta;
+      }
+    }
+
+    int[] moves = buffers[ply];
+    int count = Minimax.generateMoves(board, moves);
+    if (count == 0) {
+      return sign * Minimax.utility(board);
+    }
+    orderer.order(board, moves, count, tableMove(entry), ply);
+
+    double alphaIn = alpha;
+    double best = Double.NEGATIVE_INFINITY;
+    int bestMove = BoardLayout.NO_MOVE;
+    for (int i = 0; i < count; ++i) {
+      double score = searchChild(
+          moves[i], i == 0, depth, alpha, beta, ply, reduction(moves[i], i, depth, ply));
+      if (stopped) {
+        return 0;
+      }
+      if (score > best) {
+        best = score;
+        bestMove = moves[i];
+      }
+      if (score > alpha) {
+        alpha = score;
+      }
+      if (alpha >= beta) {
+        orderer.recordCutoff(board, moves[i], depth, ply);
+        break;
+      }
+    }
+
+    store(depth, best, alphaIn, beta, bestMove, ply);
+    return best;
+  }
+
+  /**
+    Passes the turn, searches the position to a reduced depth with a null
+    window at beta, and takes the pass back.
+
+    @param depth How many levels were left to search above the pass.
+    @param beta The upper end of the window, from the mover's point of view.
+    @param ply How many moves the position is below the root.
+
+    @return The score of passing from the mover's point of view.
+   */
+  private double searchNullMove(int depth, double beta, int ply) {
+    boolean attackerTurn = board.isAttackerTurn();
+    board.setAttackerTurn(!attackerTurn);
+    ++nodes;
+    double score = -search(
+        depth - 1 - NULL_MOVE_REDUCTION, -beta, -beta + NULL_WINDOW, ply + 1, false);
+    board.setAttackerTurn(attackerTurn);
+    return score;
+  }
+
+  /**
+    Returns how many levels shallower to search a move: one for a quiet move
+    late in the order, otherwise none.
+
+    @param move The packed move.
+    @param index Where the move comes in the order.
+    @param depth How many levels are left to search above the move.
+    @param ply How many moves the position is below the root.
+   */
+  private int reduction(int move, int index, int depth, int ply) {
+    if (!reduceLateMoves || index < FULL_DEPTH_MOVES || depth < REDUCTION_MIN_DEPTH
+        || orderer.isKiller(move, ply) || BoardProcessor.isCaptureMove(board, move)) {
+      return 0;
+    }
+
+    return 1;
+  }
+
+  /**
+    Searches only the captures of the position on the board, until the
+    position is quiet.
+
+    @param alpha The lower end of the window, from the mover's point of view.
+    @param beta The upper end of the window.
+    @param ply How many moves the position is below the root.
+    @param captures How many captures have been searched past the horizon.
+
+    @return The score from the mover's point of view. Outside the window it
+      is only a bound.
+   */
+  private double quiesce(double alpha, double beta, int ply, int captures) {
+    // Standing pat: the mover may decline every capture.
+    double best = sign(ply) * Minimax.utility(board);
+    if (board.isGameOver() || captures >= quiescencePlies || best >= beta) {
+      return best;
+    }
+    if (best > alpha) {
+      alpha = best;
+    }
+
+    int[] moves = buffers[ply];
+    int count = Minimax.generateMoves(board, moves);
+    for (int i = 0; i < count; ++i) {
+      if (!BoardProcessor.isCaptureMove(board, moves[i])) {
+        continue;
+      }
+
+      UndoRecord undo = board.makeMove(moves[i]);
+      ++nodes;
+      double score = checkStopped() ? 0 : -quiesce(-beta, -alpha, ply + 1, captures + 1);
+      board.unmakeMove(undo);
+      if (stopped) {
+        return 0;
+      }
+
+      if (score > best) {
+        best = score;
+      }
+      if (score > alpha) {
+        alpha = score;
+      }
+      if (alpha >= beta) {
+        break;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+    Passes the node count on to the control every so often, and checks
+    whether it says to stop.
+
+    @return Whether the search has been stopped.
+   */
+  private boolean checkStopped() {
+    if ((++steps & (SearchControl.CHECK_INTERVAL - 1)) == 0 && control != null) {
+      control.addNodes(nodes - reported);
+      reported = nodes;
+      stopped = control.isStopped();
+    }
+    return stopped;
+  }
+
+  /**
+    Makes a move, searches it and takes it back.
+
+    @param move The packed move.
+    @param first Whether it is the first move of its position, which gets
+      the full window straight away.
+    @param depth How many levels were left to search above the move.
+    @param alpha The lower end of the window, from the mover's point of view.
+    @param beta The upper end of the window.
+    @param ply How many moves the position is below the root.
+    @param reduction How many levels shallower to search the move at first.
+
+    @return The score of the move from the mover's point of view.
+   */
+  private double searchChild(int move, boolean first, int depth, double alpha, double beta,
+      int ply, int reduction) {
+    UndoRecord undo = board.makeMove(move);
+    ++nodes;
+
+    double score;
+    if (first) {
+      score = -search(depth - 1, -beta, -alpha, ply + 1, true);
+    } else {
+      score = -search(depth - 1 - reduction, -alpha - NULL_WINDOW, -alpha, ply + 1, true);
+      if (reduction > 0 && score > alpha && !stopped) {
+        // The reduced search may have missed something; look again properly.
+        score = -search(depth - 1, -alpha - NULL_WINDOW, -alpha, ply + 1, true);
+      }
+      if (score > alpha && score < beta && !stopped) {
+        // It beats the first move after all; find out by how much.
+        score = -search(depth - 1, -beta, -alpha, ply + 1, true);
+      }
+    }
+
+    board.unmakeMove(undo);
+    return score;
+  }
+
+  /**
+    Records a searched position in the table, from the defenders' point of
+    view.
+
+    @param depth The depth the position was searched to.
+    @param score The score from the mover's point of view.
+    @param alpha The lower end of the window the search started with.
+    @param beta The upper end of the window the search started with.
+    @param move The best move, or NO_MOVE.
+    @param ply How many moves the position is below the root.
+   */
+  private void store(int depth, double score, double alpha, double beta, int move, int ply) {
+    if (table == null || move == BoardLayout.NO_MOVE) {
+      return;
+    }
+
+    int sign = sign(ply);
+    byte bound = moverBound(TranspositionTable.boundType(score, alpha, beta), sign);
+    table.store(board.getHash(), depth, bound, sign * score, move);
+  }
+
+  /**
+    Converts a bound between the defenders' and the mover's point of view.
+    Negating a score turns a lower bound into an upper bound.
+   */
+  private static byte moverBound(byte bound, int sign) {
+    if (sign > 0 || bound == TranspositionTable.EXACT) {
+      return bound;
+    }
+
+    return bound == TranspositionTable.LOWER ? TranspositionTable.UPPER : TranspositionTable.LOWER;
+  }
+
+  /** Returns the best move stored in an entry, or NO_MOVE. */
+  private static int tableMove(long entry) {
+    return entry == TranspositionTable.MISS
+        ? BoardLayout.NO_MOVE : TranspositionTable.getMove(entry);
+  }
+}
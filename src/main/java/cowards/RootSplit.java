@@ -0,0 +1,179 @@
+package cowards;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+  Parallel search that splits the moves at the root across a ForkJoinPool.
+
+  Each root move's subtree is searched by one worker on its own copy of the
+  board, and all of the workers share one transposition table. The best root
+  score found so far is shared through an atomically updated bound, and every
+  subtree search starts with it as its alpha (or beta, when the root
+  minimizes), so the workers prune against each other's results.
+
+  The first root move is searched before the rest are handed out, since
+  there is nothing to prune against until one score is known. Moves that tie
+  for the best score may be picked differently from run to run, depending on
+  which worker finishes first.
+ */
+public class RootSplit {
+  /** The board at the root. Each worker copies it. */
+  private final Board board;
+
+  /** The root moves, packed. */
+  private final int[] moves;
+
+  /** Whether the side to move at the root maximizes. */
+  private final boolean isMax;
+
+  /** The depth of the search, counting the root moves. */
+  private final int depth;
+
+  /** Stops the search, or null. */
+  private final SearchControl control;
+
+  /** The transposition table shared by the workers, or null. */
+  private final TranspositionTable table;
+
+  /** Each worker's move orderer. */
+  private final ThreadLocal<MoveOrderer> orderers = ThreadLocal.withInitial(MoveOrderer::new);
+
+  /** The best root score so far, as the bits of a double. */
+  private final AtomicLong bound;
+
+  /** The best root child so far. */
+  private Node best;
+
+  /** Set once a subtree search is stopped. */
+  private volatile boolean stopped;
+
+  /** Forks the search of a range of root moves. */
+  private class Task extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo;
+    private final int hi;
+
+    /** Constructor. */
+    Task(int low, int high) {
+      lo = low;
+      hi = high;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo == 1) {
+        searchMove(lo);
+        return;
+      }
+
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new Task(lo, mid), new Task(mid, hi));
+    }
+  }
+
+  /** Constructor. */
+  private RootSplit(Board bd, int[] mv, int dp, TranspositionTable tb, SearchControl sc) {
+    board = bd;
+    moves = mv;
+    isMax = !bd.isAttackerTurn();
+    depth = dp;
+    table = tb;
+    control = sc;
+    bound = new AtomicLong(Double.doubleToLongBits(Minimax.startV(isMax).utility()));
+  }
+
+  /**
+    Determines the best move, searching the root moves in parallel.
+
+    @param root The node holding the board to search from.
+    @param maxDepth The max depth of the tree to search, or zero for no limit.
+    @param pool The pool to search on.
+    @param table The transposition table the workers share. Ignored when
+      there is no depth limit.
+    @param firstMove The packed root move to search first, such as the best
+      move of a shallower search, or BoardLayout.NO_MOVE.
+    @param control Stops the search, or null to search until done.
+
+    @return The best node, or null if the search was stopped.
+   */
+  static Node decision(Node root, int maxDepth, ForkJoinPool pool,
+      TranspositionTable table, int firstMove, SearchControl control) {
+    Board board = new Board(root.getBoard(), false);
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    int count = Minimax.generateMoves(board, moves);
+    if (count == 0) {
+      return Minimax.startV(!board.isAttackerTurn());
+    }
+
+    // The move expected to be best sets the tightest bound for the rest.
+    for (int i = 0; i < count; ++i) {
+      if (moves[i] == firstMove) {
+        System.arraycopy(moves, 0, moves, 1, i);
+        moves[0] = firstMove;
+        break;
+      }
+    }
+
+    RootSplit split = new RootSplit(board, Arrays.copyOf(moves, count),
+        maxDepth == 0 ? Integer.MAX_VALUE : maxDepth,
+        maxDepth == 0 ? null : table, control);
+    split.searchMove(0);
+    if (count > 1 && !split.stopped) {
+      pool.invoke(split.new Task(1, count));
+    }
+
+    return split.stopped ? null : split.best;
+  }
+
+  /**
+    Searches one root move and offers its score as the new best.
+
+    @param index The index of the move.
+   */
+  private void searchMove(int index) {
+    if (stopped || (control != null && control.isStopped())) {
+      stopped = true;
+      return;
+    }
+
+    Board copy = new Board(board, false);
+    copy.makeMove(moves[index]);
+    Node child = new Node(null, BoardLayout.unpackMove(moves[index]), Minimax.utility(copy));
+    child.setLastMove(moves[index]);
+
+    if (depth > 1 && !copy.isGameOver()) {
+      // Only a score better than the best so far matters.
+      Node shared = new Node(null, null, Double.longBitsToDouble(bound.get()));
+      Node alpha = isMax ? shared : Node.getNegInf();
+      Node beta = isMax ? Node.getInf() : shared;
+      if (Minimax.search(
+          copy, child, !isMax, alpha, beta, depth - 1, table, control,
+          orderers.get()) == null) {
+        stopped = true;
+        return;
+      }
+    }
+
+    offer(child);
+  }
+
+  /**
+    Keeps the child if it beats the best so far, and raises the shared bound
+    to its score.
+
+    @param child The searched root child.
+   */
+  private synchronized void offer(Node child) {
+    double score = child.utility();
+    if (best != null && (isMax ? score <= best.utility() : score >= best.utility())) {
+      return;
+    }
+
+    best = child;
+    bound.set(Double.doubleToLongBits(score));
+  }
+}
@@ -0,0 +1,166 @@
+package cowards;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+  Tells a running search when to give up.
+
+  A search is stopped by cancelling it from any thread, by its deadline
+  passing, by a condition it was given becoming true (such as the game
+  ending), or by its parent control stopping. Checking the clock and the
+  condition is not free, so the searches only check every CHECK_INTERVAL
+  nodes. A stopped search throws away the depth it was working on and the
+  deepest finished depth stands.
+
+  The searches also count the nodes they visit here, in batches, so the
+  count of a running search can be read from another thread. So are the
+  re-searches iterative deepening makes when a score falls outside its
+  aspiration window (see Minimax.setAspirationWindow()).
+
+  Iterative deepening tells the control's depth listener, if it has one, of
+  each depth it finishes, on the searching thread.
+ */
+public class SearchControl {
+  /** The number of nodes a search visits between checks. A power of two. */
+  public static final int CHECK_INTERVAL = 256;
+
+  /** Set once the search is cancelled. */
+  private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+  /** The nodes visited by every search using this control. */
+  private final AtomicLong nodes = new AtomicLong(0);
+
+  /** The aspiration window re-searches of every search using this control. */
+  private final AtomicLong researches = new AtomicLong(0);
+
+  /** The System.nanoTime() at which to give up, or zero. */
+  private volatile long deadline = 0;
+
+  /** Stops the search when true, or null. */
+  private final BooleanSupplier stopWhen;
+
+  /** Stops the search when it stops, or null. */
+  private final SearchControl parent;
+
+  /** Told of each depth iterative deepening finishes, or null. */
+  private volatile Consumer<SearchResult> depthListener;
+
+  /** Constructor for a search that only stops when cancelled. */
+  public SearchControl() {
+    this(null, null);
+  }
+
+  /**
+    Constructor.
+
+    @param condition Stops the search when it becomes true.
+   */
+  public SearchControl(BooleanSupplier condition) {
+    this(condition, null);
+  }
+
+  /**
+    Constructor.
+
+    @param condition Stops the search when it becomes true, or null.
+    @param outer Stops the search when it stops, or null.
+   */
+  SearchControl(BooleanSupplier condition, SearchControl outer) {
+    stopWhen = condition;
+    parent = outer;
+  }
+
+  /** Stops the search. Safe to call from any thread, any number of times. */
+  public void cancel() {
+    cancelled.set(true);
+  }
+
+  /** Returns whether the search was cancelled. */
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  /**
+    Sets the time at which to give up.
+
+    @param nanos The System.nanoTime() at which to give up, or zero for none.
+   */
+  public void setDeadline(long nanos) {
+    deadline = nanos;
+  }
+
+  /** Returns the System.nanoTime() at which to give up, or zero. */
+  public long getDeadline() {
+    return deadline;
+  }
+
+  /**
+    Adds to the count of nodes visited.
+
+    @param count The number of nodes visited since the last call.
+   */
+  public void addNodes(long count) {
+    nodes.addAndGet(count);
+    if (parent != null) {
+      parent.addNodes(count);
+    }
+  }
+
+  /** Returns the number of nodes visited so far. */
+  public long getNodes() {
+    return nodes.get();
+  }
+
+  /** Counts one search of a depth again with a wider aspiration window. */
+  public void addResearch() {
+    researches.incrementAndGet();
+    if (parent != null) {
+      parent.addResearch();
+    }
+  }
+
+  /** Returns the number of aspiration window re-searches so far. */
+  public long getResearches() {
+    return researches.get();
+  }
+
+  /**
+    Sets what to tell of each depth iterative deepening finishes. It runs on
+    the searching thread, so it should be quick.
+
+    @param listener Takes the result of each depth, or null for nothing.
+   */
+  public void setDepthListener(Consumer<SearchResult> listener) {
+    depthListener = listener;
+  }
+
+  /**
+    Tells the depth listener of a finished depth.
+
+    @param result The result of the depth.
+   */
+  void reportDepth(SearchResult result) {
+    Consumer<SearchResult> listener = depthListener;
+    if (listener != null) {
+      listener.accept(result);
+    }
+  }
+
+  /** Returns whether the search should give up now. */
+  public boolean isStopped() {
+    if (cancelled.get()) {
+      return true;
+    }
+
+    long due = deadline;
+    if (due != 0 && System.nanoTime() - due > 0) {
+      return true;
+    }
+
+    return (stopWhen != null && stopWhen.getAsBoolean())
+        || (parent != null && parent.isStopped());
+  }
+}
@@ -0,0 +1,51 @@
+package cowards;
+
+/**
+  The outcome of a search: the chosen node, how deep the search went and how
+  many nodes it visited to get there.
+ */
+public class SearchResult {
+  private Node node;
+  private int depth;
+  private long nodes;
+
+  /** Constructor. */
+  public SearchResult(Node nodeIn, int depthIn) {
+    this(nodeIn, depthIn, 0);
+  }
+
+  /** Constructor. */
+  public SearchResult(Node nodeIn, int depthIn, long nodesIn) {
+    node = nodeIn;
+    depth = depthIn;
+    nodes = nodesIn;
+  }
+
+  /** Returns the node chosen by the search. */
+  public Node getNode() {
+    return node;
+  }
+
+  /** Returns the chosen move in the same format as Node.getMove(). */
+  public int[] getMove() {
+    return node.getMove();
+  }
+
+  /** Returns the score of the chosen move. */
+  public double utility() {
+    return node.utility();
+  }
+
+  /** Returns the deepest depth that was searched to completion. */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+    Returns the number of nodes visited, counting every depth of an
+    iterative deepening search, or zero if they were not counted.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+}
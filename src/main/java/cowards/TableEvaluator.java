@@ -0,0 +1,142 @@
+package cowards;
+
+/**
+  An evaluation built from tables worked out once per square, so that
+  scoring a board is a handful of lookups and short walks.
+
+  The terms, all high for the defenders:
+
+  material         - The difference in pieces, as the board keeps it.
+  piece-square     - What each kind of piece is worth on each square: the
+                     king near a corner, attackers on the diagonals that
+                     close a corner off, defenders off the squares next to
+                     a corner where they only get in the king's way.
+  king mobility    - The squares the king can move to.
+  open lines       - The squares the king can move to that have a clear
+                     line to a corner, each a threat to escape on the next
+                     move, and a corner the king can move to outright.
+  blockade         - Attackers on the squares next to a corner, more so
+                     with both of a corner's squares taken.
+ */
+public class TableEvaluator implements Evaluator {
+  /** What each square the king can move to is worth. */
+  private static final double KING_MOBILITY_WEIGHT = 0.1;
+
+  /** What each move of the king onto a clear line to a corner is worth. */
+  private static final double OPEN_LINE_WEIGHT = 1.5;
+
+  /** What the king being able to move into a corner is worth. */
+  private static final double CORNER_REACH_WEIGHT = 8;
+
+  /** What each attacker next to a corner costs the defenders. */
+  private static final double BLOCKADE_WEIGHT = 0.75;
+
+  /** What a corner with attackers on both squares next to it costs. */
+  private static final double SEALED_CORNER_WEIGHT = 0.5;
+
+  /** What each step of the king closer to a corner is worth. */
+  private static final double KING_STEP_WEIGHT = 0.5;
+
+  /** What an attacker on a corner's diagonal costs the defenders. */
+  private static final double ATTACKER_DIAGONAL_WEIGHT = 0.4;
+
+  /** What a defender next to a corner costs the defenders. */
+  private static final double DEFENDER_CORNER_WEIGHT = 0.5;
+
+  /** The corners. */
+  private static final int[] CORNERS = {0, 10, 110, 120};
+
+  /**
+    The two squares next to each corner, in the order of CORNERS, and the
+    direction away from the corner along the edge from each.
+   */
+  private static final int[][] CORNER_NEIGHBORS = {
+    {1, 11}, {9, 21}, {99, 111}, {109, 119}
+  };
+  private static final int[][] EDGE_DIRECTIONS = {
+    {BitBoard.EAST, BitBoard.SOUTH}, {BitBoard.WEST, BitBoard.SOUTH},
+    {BitBoard.NORTH, BitBoard.EAST}, {BitBoard.NORTH, BitBoard.WEST}
+  };
+
+  /** The square next to each square in each direction, or -1 off the board. */
+  private static final int[][] STEP = new int[4][BoardLayout.SQUARE_COUNT];
+
+  /** The piece-square tables. */
+  private static final double[] KING_TABLE = new double[BoardLayout.SQUARE_COUNT];
+  private static final double[] ATTACKER_TABLE = new double[BoardLayout.SQUARE_COUNT];
+  private static final double[] DEFENDER_TABLE = new double[BoardLayout.SQUARE_COUNT];
+
+  static {
+    for (int sq = 0; sq < BoardLayout.SQUARE_COUNT; ++sq) {
+      int row = sq / 11;
+      int col = sq % 11;
+      STEP[BitBoard.NORTH][sq] = row > 0 ? sq - 11 : -1;
+      STEP[BitBoard.SOUTH][sq] = row < 10 ? sq + 11 : -1;
+      STEP[BitBoard.WEST][sq] = col > 0 ? sq - 1 : -1;
+      STEP[BitBoard.EAST][sq] = col < 10 ? sq + 1 : -1;
+
+      // Steps to the nearest corner, ignoring the pieces in the way.
+      int steps = Math.min(row, 10 - row) + Math.min(col, 10 - col);
+      KING_TABLE[sq] = KING_STEP_WEIGHT * (10 - steps);
+      ATTACKER_TABLE[sq] = steps == 2 ? -ATTACKER_DIAGONAL_WEIGHT : 0;
+      DEFENDER_TABLE[sq] = steps == 1 ? -DEFENDER_CORNER_WEIGHT : 0;
+    }
+  }
+
+  @Override
+  public double evaluate(Board board) {
+    BitBoard attackers = board.attackerBits();
+    BitBoard defenders = board.defenderBits();
+    BitBoard occupied = board.occupiedBits();
+
+    double score = board.getMaterial();
+    for (int sq = attackers.nextSetBit(0); sq >= 0; sq = attackers.nextSetBit(sq + 1)) {
+      score += ATTACKER_TABLE[sq];
+    }
+    for (int sq = defenders.nextSetBit(0); sq >= 0; sq = defenders.nextSetBit(sq + 1)) {
+      score += DEFENDER_TABLE[sq];
+    }
+
+    // The empty edge squares with a clear line to a corner, and the
+    // blockade of each corner.
+    long openLo = 0;
+    long openHi = 0;
+    for (int corner = 0; corner < CORNERS.length; ++corner) {
+      int blockers = 0;
+      for (int side = 0; side < 2; ++side) {
+        int dir = EDGE_DIRECTIONS[corner][side];
+        for (int sq = CORNER_NEIGHBORS[corner][side]; sq >= 0 && !occupied.get(sq);
+            sq = STEP[dir][sq]) {
+          if (sq < 64) {
+            openLo |= 1L << sq;
+          } else {
+            openHi |= 1L << (sq - 64);
+          }
+        }
+        if (attackers.get(CORNER_NEIGHBORS[corner][side])) {
+          ++blockers;
+        }
+      }
+      score -= BLOCKADE_WEIGHT * blockers;
+      if (blockers == 2) {
+        score -= SEALED_CORNER_WEIGHT;
+      }
+    }
+
+    // Where the king can go from here.
+    int king = board.getKingRow() * 11 + board.getKingCol();
+    score += KING_TABLE[king];
+    for (int dir = BitBoard.NORTH; dir <= BitBoard.EAST; ++dir) {
+      for (int sq = STEP[dir][king]; sq >= 0 && !occupied.get(sq); sq = STEP[dir][sq]) {
+        score += KING_MOBILITY_WEIGHT;
+        if (sq == CORNERS[0] || sq == CORNERS[1] || sq == CORNERS[2] || sq == CORNERS[3]) {
+          score += CORNER_REACH_WEIGHT;
+        } else if (((sq < 64 ? openLo >>> sq : openHi >>> (sq - 64)) & 1) != 0) {
+          score += OPEN_LINE_WEIGHT;
+        }
+      }
+    }
+
+    return score;
+  }
+}
@@ -0,0 +1,85 @@
+package cowards;
+
+/**
+  Works out how long the AI may think about a move from the state of its
+  clock.
+
+  The remaining time is shared out over the moves the game is expected to
+  last, and most of the time appended after each turn is spent as well, since
+  it comes back once the move is made. Games with many pieces left still have
+  a long way to go, so early moves get a smaller share than late ones.
+
+  The budget never comes close to the time remaining, so the AI does not lose
+  on time. The search may run past its budget by the time it takes to notice
+  (see Minimax.iterativeDeepening). Everything is worked out in milliseconds,
+  as the timers keep them.
+ */
+public class TimeManager {
+  /** The number of pieces on the starting board, counting the king. */
+  public static final int INITIAL_PIECES = 37;
+
+  /** The moves a game is expected to last once few pieces are left. */
+  public static final int MIN_MOVES_TO_GO = 15;
+
+  /** The moves a game is expected to last from the start. */
+  public static final int MAX_MOVES_TO_GO = 40;
+
+  /**
+    The shortest budget, unless less time than that is left. Even a flagging
+    AI has to move.
+   */
+  public static final long MIN_MILLIS = 50;
+
+  /** Time kept back for the search running over its budget. */
+  public static final long SAFETY_MILLIS = 1000;
+
+  /** Budget used for boards without timers. */
+  public static final long UNTIMED_MILLIS = 2000;
+
+  /** Constructor. This is a static class. */
+  private TimeManager() {
+  }
+
+  /**
+    Works out the budget for the side to move on a board.
+
+    @param board The board the AI is to move on.
+
+    @return How long to think in milliseconds.
+   */
+  public static long budgetMillis(Board board) {
+    BoardTimer timer = board.isAttackerTurn()
+        ? board.getAttackerTimer() : board.getDefenderTimer();
+    if (timer == null || timer.isKilled()) {
+      return UNTIMED_MILLIS;
+    }
+
+    int pieces = board.attackerBits().count() + board.defendingBits().count();
+    return budgetMillis(
+        timer.getTimeRemainingMillis(), timer.getTimeAppended() * 1000L, pieces);
+  }
+
+  /**
+    Works out the budget for a move.
+
+    @param remainingMillis The milliseconds left on the clock.
+    @param appendMillis The milliseconds added to the clock after each turn.
+    @param pieces The number of pieces on the board, counting the king.
+
+    @return How long to think in milliseconds. Never zero, which would mean
+      no limit to the search.
+   */
+  public static long budgetMillis(long remainingMillis, long appendMillis, int pieces) {
+    int phase = Math.min(Math.max(pieces, 0), INITIAL_PIECES);
+    long movesToGo = MIN_MOVES_TO_GO
+        + (long) (MAX_MOVES_TO_GO - MIN_MOVES_TO_GO) * phase / INITIAL_PIECES;
+
+    long budget = remainingMillis / movesToGo + appendMillis * 3 / 4;
+
+    // Never spend more than half of what is safely left, nor, to make the
+    // shortest budget, more than is left at all.
+    long cap = (remainingMillis - SAFETY_MILLIS) / 2;
+    long floor = Math.max(Math.min(MIN_MILLIS, remainingMillis), 1);
+    return Math.max(Math.min(budget, cap), floor);
+  }
+}
@@ -0,0 +1,230 @@
+package cowards;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+  Fixed-size, lock-free transposition table for the Minimax search.
+
+  Positions are looked up by their Zobrist hash. Each slot remembers the
+  depth a position was searched to, the score found, whether that score is
+  exact or only a bound (because alpha-beta cut the search short), and the
+  best move found there.
+
+  All of that is packed into one long, the entry:
+
+    bits 63-32  the score, as a float
+    bits 31-16  the packed best move, or 0xffff for NO_MOVE
+    bits 15-2   the depth
+    bits 1-0    the bound type
+
+  A score that is only a bound is rounded to the float on the side that
+  keeps the bound true, so the table never settles a position it should
+  not. An exact score is off by at most half a float step, about 1e-5 for
+  decisive scores; searches must not rely on finer differences (see
+  PvsSearch.NULL_WINDOW).
+
+  A slot is two longs, the entry and the hash XORed with the entry. Any
+  number of threads may store and probe at once without locking. If two
+  stores to a slot interleave, the halves no longer match, the XOR check
+  fails and the slot reads as empty instead of as a mix of two positions.
+
+  A slot is overwritten by any other position, but a position only
+  overwrites its own entry if it was searched at least as deep.
+ */
+public class TranspositionTable {
+  /** Bound type of an unused slot. */
+  public static final byte EMPTY = 0;
+
+  /** The stored score is the exact value of the position. */
+  public static final byte EXACT = 1;
+
+  /** The position is worth at least the stored score. */
+  public static final byte LOWER = 2;
+
+  /** The position is worth at most the stored score. */
+  public static final byte UPPER = 3;
+
+  /**
+    Returned by probe() when the position is not in the table. No stored
+    entry is zero, since the bound type of a stored entry is never EMPTY.
+   */
+  public static final long MISS = 0;
+
+  /** Default number of slots, as a power of two. */
+  public static final int DEFAULT_SIZE_BITS = 16;
+
+  /** The deepest depth an entry can hold. Deeper depths are stored as this. */
+  public static final int MAX_DEPTH = 0x3fff;
+
+  /** The packed move field standing in for NO_MOVE. */
+  private static final int NO_MOVE_BITS = 0xffff;
+
+  /** Slot i is at 2i (hash XOR entry) and 2i + 1 (entry). */
+  private final AtomicLongArray slots;
+  private final int mask;
+
+  /** Constructor using the default size. */
+  public TranspositionTable() {
+    this(DEFAULT_SIZE_BITS);
+  }
+
+  /**
+    Constructor.
+
+    @param sizeBits The table holds 2^sizeBits slots.
+   */
+  public TranspositionTable(int sizeBits) {
+    int size = 1 << sizeBits;
+    slots = new AtomicLongArray(2 * size);
+    mask = size - 1;
+  }
+
+  /** Returns the number of slots in the table. */
+  public int capacity() {
+    return slots.length() / 2;
+  }
+
+  /** Empties every slot. This must not run during a search. */
+  public void clear() {
+    for (int i = 0; i < slots.length(); ++i) {
+      slots.set(i, 0);
+    }
+  }
+
+  /**
+    Packs the result of a search into an entry.
+
+    @param depth The depth the position was searched to.
+    @param bound EXACT, LOWER or UPPER.
+    @param score The score found.
+    @param move The best move found as a packed move, or NO_MOVE.
+   */
+  public static long pack(int depth, byte bound, double score, int move) {
+    long moveBits = move == BoardLayout.NO_MOVE ? NO_MOVE_BITS : move & NO_MOVE_BITS;
+    return ((long) Float.floatToRawIntBits(toFloat(score, bound)) << 32)
+        | (moveBits << 16)
+        | ((long) Math.min(Math.max(depth, 0), MAX_DEPTH) << 2)
+        | (bound & 3);
+  }
+
+  /**
+    Rounds a score to a float. A lower bound is rounded down and an upper
+    bound up, so each still holds.
+
+    @param score The score.
+    @param bound EXACT, LOWER or UPPER.
+   */
+  private static float toFloat(double score, byte bound) {
+    float rounded = (float) score;
+    if (bound == LOWER && rounded > score) {
+      return Math.nextDown(rounded);
+    }
+    if (bound == UPPER && rounded < score) {
+      return Math.nextUp(rounded);
+    }
+    return rounded;
+  }
+
+  /**
+    Records the result of searching a position.
+
+    @param key The Zobrist hash of the position.
+    @param depth The depth the position was searched to.
+    @param bound EXACT, LOWER or UPPER.
+    @param score The score found.
+    @param move The best move found as a packed move, or NO_MOVE.
+   */
+  public void store(long key, int depth, byte bound, double score, int move) {
+    int slot = 2 * ((int) key & mask);
+    long old = probe(key);
+    if (old != MISS && getDepth(old) > depth) {
+      // Keep the deeper result for the same position.
+      return;
+    }
+
+    long entry = pack(depth, bound, score, move);
+    slots.set(slot + 1, entry);
+    slots.set(slot, key ^ entry);
+  }
+
+  /**
+    Looks up a position.
+
+    @param key The Zobrist hash of the position.
+
+    @return The entry for the position, or MISS.
+   */
+  public long probe(long key) {
+    int slot = 2 * ((int) key & mask);
+    long entry = slots.get(slot + 1);
+    if (entry == MISS || (slots.get(slot) ^ entry) != key) {
+      return MISS;
+    }
+
+    return entry;
+  }
+
+  /** Returns the depth stored in an entry returned by probe(). */
+  public static int getDepth(long entry) {
+    return (int) (entry >>> 2) & MAX_DEPTH;
+  }
+
+  /** Returns the bound type stored in an entry returned by probe(). */
+  public static byte getBound(long entry) {
+    return (byte) (entry & 3);
+  }
+
+  /** Returns the score stored in an entry returned by probe(). */
+  public static double getScore(long entry) {
+    return Float.intBitsToFloat((int) (entry >>> 32));
+  }
+
+  /** Returns the packed best move stored in an entry returned by probe(). */
+  public static int getMove(long entry) {
+    int move = (int) (entry >>> 16) & NO_MOVE_BITS;
+    return move == NO_MOVE_BITS ? BoardLayout.NO_MOVE : move;
+  }
+
+  /**
+    Returns whether a stored entry settles the position for a search of the
+    given depth and window, so the position need not be searched again.
+
+    @param entry An entry returned by probe().
+    @param depth The depth the position would be searched to.
+    @param alpha The lower end of the search window.
+    @param beta The upper end of the search window.
+   */
+  public static boolean isCutoff(long entry, int depth, double alpha, double beta) {
+    if (entry == MISS || getDepth(entry) < depth) {
+      return false;
+    }
+
+    switch (getBound(entry)) {
+      case EXACT:
+        return true;
+      case LOWER:
+        return getScore(entry) >= beta;
+      case UPPER:
+        return getScore(entry) <= alpha;
+      default:
+        return false;
+    }
+  }
+
+  /**
+    Classifies a score by the window it was searched with.
+
+    @param score The score found.
+    @param alpha The lower end of the window the search started with.
+    @param beta The upper end of the window the search started with.
+   */
+  public static byte boundType(double score, double alpha, double beta) {
+    if (score <= alpha) {
+      return UPPER;
+    }
+    if (score >= beta) {
+      return LOWER;
+    }
+    return EXACT;
+  }
+}
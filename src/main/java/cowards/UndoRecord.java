@@ -0,0 +1,99 @@
+package cowards;
+
+import java.util.*;
+
+/**
+  Everything needed to take back a move made with Board.makeMove().
+
+  The scalar state of the board is copied when the move starts. Everything
+  the move changes after that (squares, piece lists, move history and the
+  defensive board positions) is written to a journal as it happens, and
+  Board.unmakeMove() plays the journal back in reverse.
+ */
+public class UndoRecord {
+  // Journal entry kinds for the piece lists.
+  static final int LIST_APPEND = 0;
+  static final int LIST_REMOVE = 1;
+
+  // The move that was made.
+  int move;
+
+  // Board state before the move.
+  boolean attackerTurn;
+  boolean gameOver;
+  int movesWoCapture;
+  int kingRow;
+  int kingCol;
+  int selRow;
+  int selCol;
+  long pieceHash;
+  int material;
+  double kingDistance;
+
+  // Squares changed by the move, packed as (square index << 2) | old state.
+  int[] squares = new int[8];
+  int squareCount;
+
+  // Piece list changes, packed as (kind << 16) | (attacker list << 15)
+  // | (list index << 7) | square index.
+  int[] listOps = new int[8];
+  int listOpCount;
+
+  // The move history entry pushed out by this move, if any.
+  int[] droppedHistory;
+
+  // The defensive board positions before a capture cleared them, if any.
+  HashMap<String, Integer> defensiveBefore;
+
+  // The defensive board position counted by this move, and its old count.
+  String defensiveKey;
+  Integer defensivePrev;
+
+  // The number of pieces captured by the move.
+  int captures;
+
+  // Whether the move made a shield wall capture.
+  boolean shieldWall;
+
+  /** Constructor. */
+  UndoRecord(int moveIn) {
+    move = moveIn;
+  }
+
+  /** Returns the packed move that was made. */
+  public int getMove() {
+    return move;
+  }
+
+  /** Returns the number of pieces the move captured. */
+  public int getCaptureCount() {
+    return captures;
+  }
+
+  /** Returns whether the move captured anything. */
+  public boolean isCapture() {
+    return captures > 0;
+  }
+
+  /** Returns whether the move made a shield wall capture. */
+  public boolean isShieldWallCapture() {
+    return shieldWall;
+  }
+
+  /** Records the old state of a square about to change. */
+  void addSquare(int index, BoardLayout.GridSquareState old) {
+    if (squareCount == squares.length) {
+      squares = Arrays.copyOf(squares, squares.length * 2);
+    }
+    squares[squareCount++] = (index << 2) | old.ordinal();
+  }
+
+  /** Records a change to one of the piece lists. */
+  void addListOp(int kind, boolean attackerList, int listIndex, int square) {
+    if (listOpCount == listOps.length) {
+      listOps = Arrays.copyOf(listOps, listOps.length * 2);
+    }
+    listOps[listOpCount++] = (kind << 16) | ((attackerList ? 1 : 0) << 15)
+        | (listIndex << 7) | square;
+  }
+}
@@ -0,0 +1,100 @@
+package cowards;
+
+import java.util.*;
+
+/**
+  Zobrist hashing of board positions.
+
+  Every (piece, square) pair gets a random 64-bit key, and a position hashes
+  to the XOR of the keys of its pieces. The side to move and whether the game
+  is over are mixed in with keys of their own, since the same pieces are
+  worth different things depending on them.
+
+  Two move orders that end on the same position give the same hash, which is
+  what lets the transposition table recognize them.
+ */
+public class Zobrist extends BoardLayout {
+  /**
+    The keys for each piece on each square, indexed by GridSquareState
+    ordinal. The EMPTY row is left as zeros.
+   */
+  private static final long[][] PIECE_KEYS =
+      new long[GridSquareState.values().length][SQUARE_COUNT];
+
+  /**
+    Mixed in when it is the attacker's turn.
+   */
+  private static final long ATTACKER_TURN_KEY;
+
+  /**
+    Mixed in when the game is over.
+   */
+  private static final long GAME_OVER_KEY;
+
+  static {
+    // A fixed seed keeps hashes the same from run to run.
+    Random rng = new Random(2174L);
+    for (GridSquareState state : GridSquareState.values()) {
+      if (state.isEmpty()) {
+        continue;
+      }
+      for (int i = 0; i < SQUARE_COUNT; ++i) {
+        PIECE_KEYS[state.ordinal()][i] = rng.nextLong();
+      }
+    }
+    ATTACKER_TURN_KEY = rng.nextLong();
+    GAME_OVER_KEY = rng.nextLong();
+  }
+
+  /** Constructor. This is a static class. */
+  private Zobrist() {
+  }
+
+  /**
+    Returns the key for a piece sitting on a square.
+
+    @param state The piece.
+    @param row The row of the square.
+    @param col The column of the square.
+   */
+  public static long pieceKey(GridSquareState state, int row, int col) {
+    return PIECE_KEYS[state.ordinal()][squareIndex(row, col)];
+  }
+
+  /**
+    Returns the key toggled when the side to move changes.
+   */
+  public static long attackerTurnKey() {
+    return ATTACKER_TURN_KEY;
+  }
+
+  /**
+    Returns the key toggled when the game ends.
+   */
+  public static long gameOverKey() {
+    return GAME_OVER_KEY;
+  }
+
+  /**
+    Computes the hash of a board from scratch.
+
+    @param board The board to hash.
+   */
+  public static long hash(Board board) {
+    long hash = 0;
+    for (int r = 0; r <= GRID_ROW_MAX; ++r) {
+      for (int c = 0; c <= GRID_COL_MAX; ++c) {
+        hash ^= pieceKey(board.safeSquare(r, c), r, c);
+      }
+    }
+
+    if (board.isAttackerTurn()) {
+      hash ^= ATTACKER_TURN_KEY;
+    }
+    if (board.isGameOver()) {
+      hash ^= GAME_OVER_KEY;
+    }
+
+    return hash;
+  }
+}
@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+
+import cowards.BitBoard;
+import cowards.BoardLayout;
+import org.junit.Test;
+
+/**
+   Test methods associated with the bitboard board core.
+ */
+public class BitBoardTest {
+  /**
+    Test that squares in both words can be set, read and cleared.
+   */
+  @Test
+  public void setClearTest() {
+    BitBoard bits = new BitBoard();
+    bits.set(0);
+    bits.set(63);
+    bits.set(64);
+    bits.set(120);
+    assertEquals(4, bits.count());
+    assertTrue(bits.get(63));
+    assertTrue(bits.get(64));
+    assertFalse(bits.get(65));
+    bits.clear(63);
+    assertFalse(bits.get(63));
+    assertEquals(3, bits.count());
+  }
+
+  /**
+    Test that the set can be looped over across both words.
+   */
+  @Test
+  public void iterateTest() {
+    BitBoard bits = new BitBoard();
+    bits.set(5);
+    bits.set(70);
+    bits.set(120);
+    assertEquals(5, bits.lowest());
+    assertEquals(120, bits.highest());
+    assertEquals(70, bits.nextSetBit(6));
+    assertEquals(120, bits.nextSetBit(71));
+    assertEquals(-1, bits.nextSetBit(121));
+    assertEquals(-1, new BitBoard().highest());
+  }
+
+  /**
+    Test that shifting does not wrap pieces onto the next row or off the
+    board.
+   */
+  @Test
+  public void shiftTest() {
+    int left = BoardLayout.squareIndex(3, 0);
+    int right = BoardLayout.squareIndex(3, 10);
+    assertTrue(BitBoard.square(left).shift(BitBoard.WEST).isEmpty());
+    assertTrue(BitBoard.square(right).shift(BitBoard.EAST).isEmpty());
+    assertTrue(BitBoard.square(5).shift(BitBoard.NORTH).isEmpty());
+    assertTrue(BitBoard.square(115).shift(BitBoard.SOUTH).isEmpty());
+
+    // Crossing from the low word into the high word.
+    assertEquals(BitBoard.square(63 + 11), BitBoard.square(63).shift(BitBoard.SOUTH));
+    assertEquals(BitBoard.square(63), BitBoard.square(63 + 11).shift(BitBoard.NORTH));
+    assertEquals(BitBoard.square(64), BitBoard.square(63).shift(BitBoard.EAST));
+  }
+
+  /**
+    Test that a slide stops in front of the first blocker.
+   */
+  @Test
+  public void slideTest() {
+    BitBoard occupied = new BitBoard();
+    occupied.set(BoardLayout.squareIndex(5, 2));
+    occupied.set(BoardLayout.squareIndex(5, 8));
+    int from = BoardLayout.squareIndex(5, 5);
+
+    BitBoard west = BitBoard.slide(from, BitBoard.WEST, occupied);
+    assertEquals(2, west.count());
+    assertTrue(west.get(BoardLayout.squareIndex(5, 3)));
+    assertTrue(west.get(BoardLayout.squareIndex(5, 4)));
+
+    BitBoard east = BitBoard.slide(from, BitBoard.EAST, occupied);
+    assertEquals(2, east.count());
+    assertTrue(east.get(BoardLayout.squareIndex(5, 7)));
+
+    assertEquals(5, BitBoard.slide(from, BitBoard.NORTH, occupied).count());
+    assertEquals(5, BitBoard.slide(from, BitBoard.SOUTH, occupied).count());
+  }
+
+  /**
+    Test that a flood fill stays inside a ring of barriers.
+   */
+  @Test
+  public void floodFillTest() {
+    BitBoard ring = new BitBoard();
+    for (int i = 3; i <= 7; ++i) {
+      ring.set(BoardLayout.squareIndex(3, i));
+      ring.set(BoardLayout.squareIndex(7, i));
+      ring.set(BoardLayout.squareIndex(i, 3));
+      ring.set(BoardLayout.squareIndex(i, 7));
+    }
+    BitBoard passable = BitBoard.all().andNot(ring);
+    BitBoard fill = BitBoard.square(BoardLayout.squareIndex(5, 5)).floodFill(passable);
+    assertEquals(9, fill.count());
+    assertFalse(fill.touchesEdge());
+
+    // Open the ring and the fill escapes.
+    passable.set(BoardLayout.squareIndex(3, 5));
+    fill = BitBoard.square(BoardLayout.squareIndex(5, 5)).floodFill(passable);
+    assertEquals(BitBoard.all().count() - ring.count() + 1, fill.count());
+  }
+}
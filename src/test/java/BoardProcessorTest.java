@@ -2,8 +2,10 @@ import static org.junit.Assert.*;
 
 import cowards.BadAsciiBoardFormatException;
 import cowards.Board;
+import cowards.BoardLayout;
 import cowards.BoardProcessor;
 import cowards.GridOutOfBoundsException;
+import cowards.UndoRecord;
 
 import java.util.*;
 import org.junit.Test;
@@ -747,4 +749,260 @@ public class BoardProcessorTest {
       fail();
     }
   }
+
+  /**
+    Returns the moves that generateMoves() finds, sorted.
+   */
+  private int[] generated(Board board) {
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    int count = BoardProcessor.generateMoves(board, moves);
+    int[] ret = Arrays.copyOf(moves, count);
+    Arrays.sort(ret);
+    return ret;
+  }
+
+  /**
+    Returns every move that the board says is legal, sorted.
+   */
+  private int[] bruteForce(Board board) {
+    ArrayList<Integer> legal = new ArrayList<Integer>();
+    for (int from = 0; from < BoardLayout.SQUARE_COUNT; ++from) {
+      for (int to = 0; to < BoardLayout.SQUARE_COUNT; ++to) {
+        if (board.isLegalMove((from << 8) | to)) {
+          legal.add((from << 8) | to);
+        }
+      }
+    }
+    int[] ret = new int[legal.size()];
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] = legal.get(i);
+    }
+    Arrays.sort(ret);
+    return ret;
+  }
+
+  /**
+    Check that generateMoves() finds exactly the legal moves on the starting
+    board for both sides.
+   */
+  @Test
+  public void generateStartingMovesTest() {
+    try {
+      Board board = new Board();
+      assertArrayEquals(bruteForce(board), generated(board));
+      board.setAttackerTurn(false);
+      assertArrayEquals(bruteForce(board), generated(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Check that generateMoves() lets pieces pass over the empty throne without
+    stopping on it, and lets the king stop on the corners.
+   */
+  @Test
+  public void generateSpecialSquaresTest() {
+    try {
+      Board board = new Board(new char[][] {
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'K', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      // Ten squares along the row minus the throne, ten along the column.
+      assertEquals(19, generated(board).length);
+      assertArrayEquals(bruteForce(board), generated(board));
+      for (int move : generated(board)) {
+        assertNotEquals(BoardLayout.squareIndex(5, 5), BoardLayout.moveTo(move));
+      }
+
+      // The king may land on both corners of its row.
+      board.setAttackerTurn(false);
+      assertEquals(20, generated(board).length);
+      assertArrayEquals(bruteForce(board), generated(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Check that generateMoves() stops once the buffer is full.
+   */
+  @Test
+  public void generateFullBufferTest() {
+    try {
+      Board board = new Board();
+      int[] moves = new int[3];
+      assertEquals(3, BoardProcessor.generateMoves(board, moves));
+      assertEquals(0, BoardProcessor.generateMoves(board, new int[0]));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Returns the number of moves isCaptureMove() flags, failing if it misses
+    any move that really captures.
+   */
+  private int flaggedCaptures(Board board) {
+    int flagged = 0;
+    for (int move : generated(board)) {
+      boolean predicted = BoardProcessor.isCaptureMove(board, move);
+      Board copy = new Board(board, false);
+      UndoRecord undo = copy.makeMove(move);
+      assertNotNull(undo);
+      if (undo.isCapture()) {
+        assertTrue(predicted);
+      }
+      flagged += predicted ? 1 : 0;
+    }
+    return flagged;
+  }
+
+  /**
+    Check that isCaptureMove() finds no captures on the starting board.
+   */
+  @Test
+  public void captureMoveQuietTest() {
+    try {
+      assertEquals(0, flaggedCaptures(new Board()));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Check that isCaptureMove() finds basic captures, including against the
+    empty throne.
+   */
+  @Test
+  public void captureMoveBasicTest() {
+    try {
+      Board board = new Board(new char[][] {
+        {' ', ' ', ' ', 'A', ' ', ' ', 'A', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', 'D', 'A', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K'}
+      });
+      // Against the empty throne.
+      assertTrue(BoardProcessor.isCaptureMove(board, BoardLayout.packMove(5, 3, 0, 3)));
+      // Against another attacker.
+      assertTrue(BoardProcessor.isCaptureMove(board, BoardLayout.packMove(7, 6, 0, 6)));
+      assertFalse(BoardProcessor.isCaptureMove(board, BoardLayout.packMove(4, 3, 0, 3)));
+      assertEquals(2, flaggedCaptures(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Check that isCaptureMove() finds king captures and shield walls.
+   */
+  @Test
+  public void captureMoveKingAndWallTest() {
+    try {
+      Board board = new Board(new char[][] {
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', 'K', ' ', ' ', ' ', ' ', 'A', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', 'A', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', 'D', 'D', ' ', ' ', ' ', ' ', ' '}
+      });
+      int kingMove = BoardLayout.packMove(3, 4, 3, 8);
+      assertTrue(BoardProcessor.isCaptureMove(board, kingMove));
+      Board copy = new Board(board, false);
+      copy.makeMove(kingMove);
+      assertTrue(copy.isGameOver());
+
+      int wallMove = BoardLayout.packMove(10, 6, 5, 6);
+      assertTrue(BoardProcessor.isCaptureMove(board, wallMove));
+      copy = new Board(board, false);
+      assertTrue(copy.makeMove(wallMove).isShieldWallCapture());
+
+      flaggedCaptures(board);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the king is near escape on an edge or with an open line to
+    one, and not when every line is blocked.
+   */
+  @Test
+  public void kingNearEscapeTest() {
+    try {
+      Board board = new Board(BoardLayout.INITIAL_BOARD);
+      assertFalse(BoardProcessor.isKingNearEscape(board));
+
+      board = new Board(new char[][] {
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', ' ', 'K', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      // The line east is open.
+      assertTrue(BoardProcessor.isKingNearEscape(board));
+
+      board = new Board(new char[][] {
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', ' ', 'K', ' ', ' ', 'A', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      assertFalse(BoardProcessor.isKingNearEscape(board));
+
+      board = new Board(new char[][] {
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K', 'A', ' ', ' '}
+      });
+      assertTrue(BoardProcessor.isKingNearEscape(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
 }
@@ -0,0 +1,164 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.MaterialEvaluator;
+import cowards.Minimax;
+import cowards.TableEvaluator;
+import org.junit.Test;
+
+/**
+   Test methods associated with the evaluators.
+ */
+public class EvaluatorTest {
+  /**
+    Builds a board from rows of text, with the attackers to move.
+   */
+  private Board getBoard(String... rows) throws BadAsciiBoardFormatException {
+    char[][] chars = new char[rows.length][];
+    for (int i = 0; i < rows.length; ++i) {
+      chars[i] = rows[i].toCharArray();
+    }
+    return new Board(new Board(chars), false);
+  }
+
+  /**
+    Returns the same board turned a quarter turn.
+   */
+  private Board getTurned(String... rows) throws BadAsciiBoardFormatException {
+    String[] turned = new String[rows.length];
+    for (int r = 0; r < rows.length; ++r) {
+      StringBuilder sb = new StringBuilder();
+      for (int c = 0; c < rows.length; ++c) {
+        sb.append(rows[rows.length - 1 - c].charAt(r));
+      }
+      turned[r] = sb.toString();
+    }
+    return getBoard(turned);
+  }
+
+  /**
+    Tests that utility() uses the original evaluation unless told otherwise.
+   */
+  @Test
+  public void defaultEvaluatorTest() {
+    try {
+      assertTrue(Minimax.getEvaluator() instanceof MaterialEvaluator);
+      Board board = new Board(new Board(), false);
+      assertEquals(13 - 24 + 7.071 - Minimax.kingBestCorner(board),
+          Minimax.utility(board), 1e-9);
+
+      Minimax.setEvaluator(new TableEvaluator());
+      assertTrue(Minimax.getEvaluator() instanceof TableEvaluator);
+      assertEquals(new TableEvaluator().evaluate(board), Minimax.utility(board), 0);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      Minimax.setEvaluator(null);
+    }
+    assertTrue(Minimax.getEvaluator() instanceof MaterialEvaluator);
+  }
+
+  /**
+    Tests that the table evaluator scores a position and its quarter turn
+    the same.
+   */
+  @Test
+  public void symmetryTest() {
+    String[] rows = {
+      " A   A     ",
+      "A    A     ",
+      "   D       ",
+      "           ",
+      "      D  A ",
+      " A   K     ",
+      "    D     A",
+      "           ",
+      "  A        ",
+      "         D ",
+      "    AA    A"
+    };
+    try {
+      TableEvaluator eval = new TableEvaluator();
+      assertEquals(eval.evaluate(getBoard(rows)), eval.evaluate(getTurned(rows)), 1e-9);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a king with a clear line to a corner is worth more than the
+    same king walled in.
+   */
+  @Test
+  public void openLineTest() {
+    try {
+      TableEvaluator eval = new TableEvaluator();
+      double open = eval.evaluate(getBoard(
+          "           ",
+          "      A    ",
+          "           ",
+          "A   D     A",
+          "           ",
+          "     K     ",
+          "           ",
+          "A   D     A",
+          "           ",
+          "      A    ",
+          "           "));
+      double blocked = eval.evaluate(getBoard(
+          "           ",
+          "     A     ",
+          "           ",
+          "A   D     A",
+          "           ",
+          "    AKA    ",
+          "           ",
+          "    D      ",
+          "           ",
+          "     A     ",
+          "           "));
+      assertTrue(open > blocked);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that attackers next to a corner are worth more to the attackers
+    than the same attackers out in the open.
+   */
+  @Test
+  public void blockadeTest() {
+    try {
+      TableEvaluator eval = new TableEvaluator();
+      double blockade = eval.evaluate(getBoard(
+          " A         ",
+          "A          ",
+          "           ",
+          "           ",
+          "     D     ",
+          "    DKD    ",
+          "     D     ",
+          "           ",
+          "           ",
+          "           ",
+          "           "));
+      double open = eval.evaluate(getBoard(
+          "           ",
+          "           ",
+          "           ",
+          "    A      ",
+          "     D     ",
+          "   ADKD    ",
+          "     D     ",
+          "           ",
+          "           ",
+          "           ",
+          "           "));
+      assertTrue(blockade < open);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.ClockScheduler;
+import cowards.GameSession;
+import cowards.GameSessionManager;
+import cowards.GridOutOfBoundsException;
+import org.junit.Test;
+
+/**
+   Test methods associated with hosting games headless.
+ */
+public class GameSessionManagerTest {
+  /**
+    Tests that a thousand games run side by side without a thread each, and
+    let go of their clocks when closed.
+   */
+  @Test
+  public void manySessionsTest() {
+    GameSessionManager manager = new GameSessionManager(2);
+    try {
+      int threads = Thread.activeCount();
+      int tasks = ClockScheduler.getPendingTasks();
+      GameSession[] sessions = new GameSession[1000];
+      for (int i = 0; i < sessions.length; ++i) {
+        sessions[i] = manager.createSession(false, false);
+      }
+      assertEquals(1000, manager.getSessionCount());
+      assertTrue(Thread.activeCount() <= threads + 1);
+      assertSame(sessions[500], manager.getSession(sessions[500].getId()));
+
+      for (GameSession session : sessions) {
+        assertTrue(manager.closeSession(session.getId()));
+        assertTrue(session.isClosed());
+      }
+      assertEquals(0, manager.getSessionCount());
+      assertFalse(manager.closeSession(sessions[0].getId()));
+      assertTrue(ClockScheduler.getPendingTasks() <= tasks);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+    Tests that only legal moves by the side to move are made.
+   */
+  @Test
+  public void submitMoveTest() {
+    GameSessionManager manager = new GameSessionManager(1);
+    try {
+      GameSession session = manager.createSession(false, false);
+      String id = session.getId();
+
+      // The defenders may not move first, nor may a piece move diagonally.
+      assertFalse(manager.submitMove(id, 5, 3, 2, 3));
+      assertFalse(manager.submitMove(id, 0, 3, 1, 4));
+      assertFalse(manager.submitMove(id, 0, 3, 11, 3));
+      assertFalse(manager.submitMove("no-such-game", 0, 3, 2, 3));
+      assertEquals(0, session.getMoveCount());
+
+      assertTrue(manager.submitMove(id, 0, 3, 2, 3));
+      assertFalse(session.isAttackerTurn());
+      assertEquals(1, session.getMoveCount());
+      assertEquals(Board.GridSquareState.ATTACKER, session.getBoard().square(2, 3));
+    } catch (BadAsciiBoardFormatException | GridOutOfBoundsException ex) {
+      fail();
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+    Tests that the AI answers a human's move, and that a human may not move
+    for the AI.
+   */
+  @Test
+  public void aiTurnTest() {
+    GameSessionManager manager = new GameSessionManager(1);
+    manager.setMoveMillis(100);
+    try {
+      GameSession session = manager.createSession(false, true);
+      String id = session.getId();
+      assertTrue(manager.submitMove(id, 0, 3, 2, 3));
+      assertFalse(manager.submitMove(id, 5, 3, 2, 3));
+
+      assertTrue(session.awaitAi(5000));
+      assertTrue(session.isAttackerTurn());
+      assertEquals(2, session.getMoveCount());
+      assertFalse(session.isAiPending());
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    } finally {
+      manager.shutdown();
+    }
+  }
+
+  /**
+    Tests that the AI plays both sides of a game on its own, and stops when
+    the session closes.
+   */
+  @Test
+  public void aiGameTest() {
+    GameSessionManager manager = new GameSessionManager(1);
+    manager.setMoveMillis(20);
+    try {
+      GameSession session = manager.createSession(true, true);
+      for (int i = 0; i < 400 && session.getMoveCount() < 4 && !session.isGameOver(); ++i) {
+        Thread.sleep(5);
+      }
+      assertTrue(session.getMoveCount() >= 4);
+
+      manager.closeSession(session.getId());
+      assertTrue(session.awaitAi(5000));
+      int moves = session.getMoveCount();
+      Thread.sleep(100);
+      assertEquals(moves, session.getMoveCount());
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    } finally {
+      manager.shutdown();
+    }
+  }
+}
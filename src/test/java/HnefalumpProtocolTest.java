@@ -0,0 +1,168 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.ClockScheduler;
+import cowards.GridOutOfBoundsException;
+import cowards.HnefalumpProtocol;
+import cowards.Minimax;
+import cowards.TableEvaluator;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.Test;
+
+/**
+   Test methods associated with the text protocol.
+ */
+public class HnefalumpProtocolTest {
+  /** Where the protocol under test answers. */
+  private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  /** Returns a protocol answering into output. */
+  private HnefalumpProtocol getProtocol() throws BadAsciiBoardFormatException {
+    return new HnefalumpProtocol(new PrintStream(output, true));
+  }
+
+  /** Returns the lines answered so far. */
+  private String[] getLines() {
+    return output.toString().trim().split("\\R");
+  }
+
+  /**
+    Tests the handshake and the options.
+   */
+  @Test
+  public void handshakeTest() {
+    try {
+      HnefalumpProtocol protocol = getProtocol();
+      assertTrue(protocol.handle("uci"));
+      assertTrue(protocol.handle("isready"));
+      assertTrue(protocol.handle("setoption name Evaluator value table"));
+      assertTrue(Minimax.getEvaluator() instanceof TableEvaluator);
+      assertTrue(protocol.handle("bogus"));
+      assertFalse(protocol.handle("quit"));
+
+      String[] lines = getLines();
+      assertEquals("id name Hnefalump", lines[0]);
+      assertEquals("uciok", lines[lines.length - 3]);
+      assertEquals("readyok", lines[lines.length - 2]);
+      assertEquals("info string unknown command bogus", lines[lines.length - 1]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      Minimax.setEvaluator(null);
+    }
+  }
+
+  /**
+    Tests that positions are set up from the initial board or a board
+    string, with their moves made.
+   */
+  @Test
+  public void positionTest() {
+    try {
+      HnefalumpProtocol protocol = getProtocol();
+      protocol.handle("position startpos moves d11d9 d6d8");
+      Board board = protocol.getBoard();
+      assertEquals(Board.GridSquareState.ATTACKER, board.square(2, 3));
+      assertEquals(Board.GridSquareState.DEFENDER, board.square(3, 3));
+      assertTrue(board.isAttackerTurn());
+
+      // The defenders may not move for the attackers.
+      protocol.handle("position startpos moves d6d8");
+      assertEquals("info string illegal move d6d8", getLines()[0]);
+      assertEquals(Board.GridSquareState.EMPTY, protocol.getBoard().square(3, 3));
+
+      protocol.handle("position board "
+          + "...AAAAA.../.....A...../.........../A....D....A/A...DDD...A/"
+          + "AA.DDKDD.AA/A...DDD...A/A....D....A/.........../.....A...../"
+          + "...AAAAA... d moves e5e3");
+      board = protocol.getBoard();
+      assertEquals(Board.GridSquareState.DEFENDER, board.square(8, 4));
+      assertTrue(board.isAttackerTurn());
+    } catch (BadAsciiBoardFormatException | GridOutOfBoundsException ex) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a search streams a line for each depth and ends with a
+    legal best move.
+   */
+  @Test
+  public void goDepthTest() {
+    try {
+      HnefalumpProtocol protocol = getProtocol();
+      protocol.handle("position startpos");
+      protocol.handle("go depth 2");
+      protocol.awaitSearch();
+
+      String[] lines = getLines();
+      assertEquals(3, lines.length);
+      assertTrue(lines[0].matches(
+          "info depth 1 score cp -?\\d+ nodes \\d+ nps \\d+ time \\d+ pv [a-k]\\d+[a-k]\\d+"));
+      assertTrue(lines[1].startsWith("info depth 2 "));
+      assertTrue(lines[2].startsWith("bestmove "));
+
+      String move = lines[2].substring("bestmove ".length());
+      assertTrue(lines[1].endsWith(" pv " + move));
+      protocol.handle("position startpos moves " + move);
+      assertFalse(protocol.getBoard().isAttackerTurn());
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that an endless search ends with a best move once stopped, and
+    that a node limit ends a search.
+   */
+  @Test
+  public void stopTest() {
+    try {
+      HnefalumpProtocol protocol = getProtocol();
+      protocol.handle("go infinite");
+      Thread.sleep(300);
+      protocol.handle("stop");
+      String[] lines = getLines();
+      assertTrue(lines[lines.length - 1].startsWith("bestmove "));
+
+      output.reset();
+      protocol.handle("go nodes 1000");
+      protocol.awaitSearch();
+      lines = getLines();
+      assertTrue(lines[lines.length - 1].startsWith("bestmove "));
+      assertTrue(lines.length <= 3);
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the engine's boards run no clocks, so a search long after a
+    clock would have run out still finds a move.
+   */
+  @Test
+  public void noClockTest() {
+    try {
+      Board.setTimerInitial(1);
+      int tasks = ClockScheduler.getPendingTasks();
+      HnefalumpProtocol protocol = getProtocol();
+      for (int i = 0; i < 50; ++i) {
+        protocol.handle("position startpos moves d11d9");
+      }
+      assertTrue(ClockScheduler.getPendingTasks() <= tasks);
+      assertNull(protocol.getBoard().getAttackerTimer());
+
+      Thread.sleep(1200);
+      protocol.handle("go depth 1");
+      protocol.awaitSearch();
+      String[] lines = getLines();
+      assertTrue(lines[lines.length - 1].matches("bestmove [a-k]\\d+[a-k]\\d+"));
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    } finally {
+      Board.setTimerInitial(-1);
+    }
+  }
+}
@@ -127,4 +127,64 @@ public class HnefalumpTest {
       fail();
     }
   }
+
+  /**
+    Test that the time limited AI still finds the obvious capture.
+   */
+  @Test
+  public void timedObviousCaptureTest() {
+    Board board = null;
+    try {
+      board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'A', 'K', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+
+      int[] move = Hnefalump.getNextMove(board, 0, 500);
+      assertEquals(8, move[0]);
+      assertEquals(3, move[1]);
+    } catch (BadAsciiBoardFormatException bex) {
+      fail();
+    }
+  }
+
+  /**
+    Test that the AI finds the two move escape when searching with several
+    threads.
+   */
+  @Test
+  public void threadedTwoMoveEscapeTest() {
+    Board board = null;
+    try {
+      board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', 'K', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+
+      board.setAttackerTurn(false);
+      int[] move = Hnefalump.getNextMove(board, 3, 0, 4);
+      assertEquals(3, move[0]);
+      assertEquals(4, move[1]);
+    } catch (BadAsciiBoardFormatException bex) {
+      fail();
+    }
+  }
 }
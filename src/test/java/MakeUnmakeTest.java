@@ -0,0 +1,273 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.BoardLayout;
+import cowards.GridOutOfBoundsException;
+import cowards.Minimax;
+import cowards.UndoRecord;
+import cowards.Zobrist;
+import java.util.*;
+import org.junit.Test;
+
+/**
+   Test methods associated with making and unmaking moves in place.
+ */
+public class MakeUnmakeTest {
+
+  /**
+    Describe everything about a board that a move can change.
+   */
+  private String snapshot(Board board) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Arrays.deepToString(board.getBoard()));
+    for (int[] p : board.getAttackers()) {
+      sb.append(Arrays.toString(p));
+    }
+    sb.append('|');
+    for (int[] p : board.getDefenders()) {
+      sb.append(Arrays.toString(p));
+    }
+    sb.append('|');
+    for (int[] m : board.getAttMoves()) {
+      sb.append(Arrays.toString(m));
+    }
+    sb.append('|');
+    for (int[] m : board.getDefMoves()) {
+      sb.append(Arrays.toString(m));
+    }
+    sb.append('|').append(new TreeMap<String, Integer>(board.getDefensiveBoardPositions()));
+    sb.append('|').append(board.getMovesWoCapture());
+    sb.append('|').append(board.getKingRow()).append(',').append(board.getKingCol());
+    sb.append('|').append(board.isAttackerTurn()).append(board.isGameOver());
+    sb.append('|').append(board.getHash());
+    sb.append('|').append(board.getMaterial()).append(',').append(board.getKingDistance());
+    return sb.toString();
+  }
+
+  /**
+    Make a move, check it was legal, take it back and check nothing changed.
+   */
+  private UndoRecord makeAndUnmake(Board board, int fromRow, int fromCol, int toRow, int toCol) {
+    String before = snapshot(board);
+    UndoRecord undo = board.makeMove(BoardLayout.packMove(toRow, toCol, fromRow, fromCol));
+    assertNotNull(undo);
+    assertEquals(Zobrist.hash(board), board.getHash());
+    board.unmakeMove(undo);
+    assertEquals(before, snapshot(board));
+    return undo;
+  }
+
+  /**
+    Test that makeMove() has the same effect as select() and move().
+   */
+  @Test
+  public void makeMatchesMoveTest() {
+    try {
+      Board moved = new Board(new Board(), false);
+      Board made = new Board(new Board(), false);
+      moved.select(0, 3);
+      moved.move(2, 3);
+      assertNotNull(made.makeMove(BoardLayout.packMove(2, 3, 0, 3)));
+      assertEquals(snapshot(moved), snapshot(made));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } catch (GridOutOfBoundsException gx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that illegal moves are refused and leave the board alone.
+   */
+  @Test
+  public void illegalMoveTest() {
+    try {
+      Board board = new Board(new Board(), false);
+      String before = snapshot(board);
+
+      // Defender on the attacker's turn.
+      assertNull(board.makeMove(BoardLayout.packMove(8, 5, 7, 5)));
+      // Blocked path.
+      assertNull(board.makeMove(BoardLayout.packMove(0, 8, 0, 3)));
+      // Diagonal.
+      assertNull(board.makeMove(BoardLayout.packMove(1, 4, 0, 3)));
+      // Empty square.
+      assertNull(board.makeMove(BoardLayout.packMove(2, 2, 1, 1)));
+      assertEquals(before, snapshot(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a quiet move is taken back.
+   */
+  @Test
+  public void quietMoveTest() {
+    try {
+      UndoRecord undo = makeAndUnmake(new Board(new Board(), false), 0, 3, 2, 3);
+      assertFalse(undo.isCapture());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a capture restores the captured piece and its list position.
+   */
+  @Test
+  public void captureRestoreTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', 'K', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      Board copy = new Board(board, false);
+      UndoRecord undo = makeAndUnmake(copy, 10, 3, 5, 3);
+      assertTrue(undo.isCapture());
+      assertEquals(1, undo.getCaptureCount());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a king capture (and the game over it causes) is taken back.
+   */
+  @Test
+  public void kingCaptureTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'A', 'K', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      Board copy = new Board(board, false);
+      String before = snapshot(copy);
+      UndoRecord undo = copy.makeMove(BoardLayout.packMove(5, 3, 5, 4));
+      assertTrue(undo.isCapture());
+      assertTrue(copy.isGameOver());
+      assertEquals(-1, copy.getKingRow());
+      copy.unmakeMove(undo);
+      assertEquals(before, snapshot(copy));
+      assertFalse(copy.isGameOver());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a shield wall capture is taken back.
+   */
+  @Test
+  public void shieldWallTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', 'A', 'A', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'A', 'D', 'D', 'D', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      Board copy = new Board(board, false);
+      UndoRecord undo = makeAndUnmake(copy, 9, 5, 10, 5);
+      assertEquals(3, undo.getCaptureCount());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that the defensive board positions are restored, both when a
+    defender move adds one and when a capture clears them.
+   */
+  @Test
+  public void defensivePositionsTest() {
+    try {
+      Board board = new Board(new Board(), false);
+
+      // A defender move counts a position.
+      board.setAttackerTurn(false);
+      makeAndUnmake(board, 7, 5, 8, 5);
+      assertNotNull(board.makeMove(BoardLayout.packMove(8, 5, 7, 5)));
+      assertEquals(1, board.getDefensiveBoardPositions().size());
+
+      // An attacker move, then a defender capture clears the positions.
+      assertNotNull(board.makeMove(BoardLayout.packMove(8, 6, 10, 6)));
+      UndoRecord undo = makeAndUnmake(board, 5, 7, 8, 7);
+      assertTrue(undo.isCapture());
+      assertEquals(1, board.getDefensiveBoardPositions().size());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a long random game can be taken back move by move, including
+    moves that push old entries out of the move history.
+   */
+  @Test
+  public void randomGameTest() {
+    try {
+      Board board = new Board(new Board(), false);
+      Random rng = new Random(1530);
+      Deque<UndoRecord> undos = new ArrayDeque<UndoRecord>();
+      Deque<String> snapshots = new ArrayDeque<String>();
+
+      for (int ply = 0; ply < 80 && !board.isGameOver(); ++ply) {
+        // Collect the legal moves and pick one.
+        List<Integer> legal = new ArrayList<Integer>();
+        for (int from = 0; from < BoardLayout.SQUARE_COUNT; ++from) {
+          for (int to = 0; to < BoardLayout.SQUARE_COUNT; ++to) {
+            int move = (from << 8) | to;
+            if (board.isLegalMove(move)) {
+              legal.add(move);
+            }
+          }
+        }
+        snapshots.push(snapshot(board));
+        UndoRecord undo = board.makeMove(legal.get(rng.nextInt(legal.size())));
+        assertNotNull(undo);
+        assertEquals(Zobrist.hash(board), board.getHash());
+        if (!board.isGameOver()) {
+          // The incremental terms match the terms computed from scratch.
+          assertEquals(board.getDefenders().size() - board.getAttackers().size(),
+              board.getMaterial());
+          assertEquals(Minimax.kingBestCorner(board), board.getKingDistance(), 0);
+        }
+        undos.push(undo);
+      }
+
+      while (!undos.isEmpty()) {
+        board.unmakeMove(undos.pop());
+        assertEquals(snapshots.pop(), snapshot(board));
+      }
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
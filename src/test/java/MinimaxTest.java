@@ -5,6 +5,10 @@ import cowards.Board;
 import cowards.GridOutOfBoundsException;
 import cowards.Minimax;
 import cowards.Node;
+import cowards.Parallelism;
+import cowards.PvsSearch;
+import cowards.SearchControl;
+import cowards.SearchResult;
 import java.util.*;
 import org.junit.Test;
 
@@ -424,4 +428,404 @@ public class MinimaxTest {
       fail();
     }
   }
+
+  /**
+    Tests that iterativeDeepening() stops at the capture it finds at depth 1
+    instead of searching the rest of the depths.
+   */
+  @Test
+  public void iterativeCaptureTest() {
+    try {
+      Board board = getNearSurroundedKing();
+      SearchResult result = Minimax.iterativeDeepening(new Node(board, null, 0), 5, 0);
+      assertEquals(1, result.getDepth());
+      assertEquals(4, result.getMove()[0]);
+      assertEquals(0, result.getMove()[1]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that iterativeDeepening() searches every depth up to the maximum
+    when there is no time limit.
+   */
+  @Test
+  public void iterativeMaxDepthTest() {
+    try {
+      Board board = getNextMoveCapture();
+      board.setAttackerTurn(false);
+      SearchResult result = Minimax.iterativeDeepening(new Node(board, null, 0), 2, 0);
+      assertEquals(2, result.getDepth());
+      assertNotNull(result.getMove());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that iterativeDeepening() still returns a completed depth when the
+    time budget is too small to finish anything past the first depth.
+   */
+  @Test
+  public void iterativeTimeLimitTest() {
+    try {
+      Board board = new Board();
+      SearchResult result = Minimax.iterativeDeepening(new Node(board, null, 0), 0, 1);
+      assertEquals(1, result.getDepth());
+      assertNotNull(result.getMove());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that iterativeDeepening() returns null when there are no moves.
+   */
+  @Test
+  public void iterativeNoMovesTest() {
+    try {
+      Board board = getLonelyKing();
+      Node node = new Node(board, null, 0);
+      assertNull(Minimax.iterativeDeepening(node, 3, 0));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the parallel search scores the starting board the same as the
+    single threaded search.
+   */
+  @Test
+  public void parallelMatchesSequentialTest() {
+    try {
+      Board board = new Board(new Board(), false);
+      Node sequential = Minimax.minimaxDecision(new Node(board, null, 0), 3);
+      Node parallel = Minimax.parallelDecision(new Node(board, null, 0), 3, 4);
+      assertEquals(sequential.utility(), parallel.utility(), 0.0000001);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the parallel search guides the attackers to capture the King.
+   */
+  @Test
+  public void parallelCaptureTest() {
+    try {
+      Board board = getNearSurroundedKing();
+      Node result = Minimax.parallelDecision(new Node(board, null, 0), 2, 4);
+      assertEquals(4, result.getMove()[0]);
+      assertEquals(0, result.getMove()[1]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the parallel search gives no move when there are no moves.
+   */
+  @Test
+  public void parallelNoMovesTest() {
+    try {
+      Node result = Minimax.parallelDecision(new Node(getLonelyKing(), null, 0), 3, 4);
+      assertNull(result.getMove());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the lazy SMP search guides the attackers to capture the King.
+   */
+  @Test
+  public void lazySmpCaptureTest() {
+    try {
+      Board board = getNearSurroundedKing();
+      SearchResult result = Minimax.iterativeDeepening(
+          new Node(board, null, 0), 3, 0, 4, Parallelism.LAZY_SMP);
+      assertEquals(4, result.getMove()[0]);
+      assertEquals(0, result.getMove()[1]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the lazy SMP search returns null when there are no moves.
+   */
+  @Test
+  public void lazySmpNoMovesTest() {
+    try {
+      Node node = new Node(getLonelyKing(), null, 0);
+      assertNull(Minimax.iterativeDeepening(node, 3, 0, 4, Parallelism.LAZY_SMP));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a search cancelled before it starts gives no result.
+   */
+  @Test
+  public void cancelledSearchTest() {
+    try {
+      SearchControl control = new SearchControl();
+      control.cancel();
+      assertTrue(control.isStopped());
+      assertNull(Minimax.iterativeDeepening(
+          new Node(new Board(), null, 0), 0, 0, 1, Parallelism.ROOT_SPLIT, control));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that cancelling a search with no limits stops it promptly and keeps
+    the best move of the deepest depth it finished.
+   */
+  @Test
+  public void cancelRunningSearchTest() {
+    try {
+      Board board = new Board();
+      long start = System.nanoTime();
+      SearchControl control = new SearchControl(() -> System.nanoTime() - start > 300000000L);
+      SearchResult result = Minimax.iterativeDeepening(
+          new Node(board, null, 0), 0, 0, 1, Parallelism.ROOT_SPLIT, control);
+      assertTrue(System.nanoTime() - start < 5000000000L);
+      assertNotNull(result);
+      assertNotNull(result.getMove());
+      assertTrue(result.getDepth() >= 1);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that cancelling stops the lazy SMP helpers along with the main
+    search.
+   */
+  @Test
+  public void cancelLazySmpTest() {
+    try {
+      Board board = new Board();
+      long start = System.nanoTime();
+      SearchControl control = new SearchControl(() -> System.nanoTime() - start > 300000000L);
+      SearchResult result = Minimax.iterativeDeepening(
+          new Node(board, null, 0), 0, 0, 3, Parallelism.LAZY_SMP, control);
+      assertTrue(System.nanoTime() - start < 5000000000L);
+      assertNotNull(result);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that principal variation search scores positions the same as the
+    Minimax search, for both sides, and counts the nodes it visits.
+   */
+  @Test
+  public void pvsMatchesMinimaxTest() {
+    try {
+      Board[] boards = {
+        new Board(new Board(), false), getLeftMiddleKing(), getCornerKing(),
+        getNearSurroundedKing(), getNearSurroundedKing2(), getNextMoveCapture()
+      };
+      PvsSearch.setNullMove(false);
+      PvsSearch.setLateMoveReductions(false);
+      for (Board board : boards) {
+        for (int depth = 1; depth <= 3; ++depth) {
+          for (boolean attackerTurn : new boolean[] {true, false}) {
+            board.setAttackerTurn(attackerTurn);
+            SearchControl control = new SearchControl();
+            Node minimax = Minimax.minimaxDecision(new Node(board, null, 0), depth, control);
+            SearchResult pvs = PvsSearch.decision(new Node(board, null, 0), depth);
+            if (minimax.getMove() == null) {
+              assertNull(pvs.getMove());
+              continue;
+            }
+            assertEquals(minimax.utility(), pvs.utility(), 0.0001);
+            assertTrue(pvs.getNodes() > 0);
+            assertTrue(control.getNodes() > 0);
+          }
+        }
+      }
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      PvsSearch.setNullMove(true);
+      PvsSearch.setLateMoveReductions(true);
+    }
+  }
+
+  /**
+    Tests that null move pruning and late move reductions each cut the nodes
+    of a search from the opening.
+   */
+  @Test
+  public void pvsPruningTest() {
+    try {
+      Node root = new Node(new Board(new Board(), false), null, 0);
+      PvsSearch.setNullMove(false);
+      PvsSearch.setLateMoveReductions(false);
+      long plain = PvsSearch.decision(root, 4).getNodes();
+
+      PvsSearch.setNullMove(true);
+      long nullMove = PvsSearch.decision(root, 4).getNodes();
+      assertTrue(nullMove < plain);
+
+      PvsSearch.setNullMove(false);
+      PvsSearch.setLateMoveReductions(true);
+      long reduced = PvsSearch.decision(root, 4).getNodes();
+      assertTrue(reduced < plain);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      PvsSearch.setNullMove(true);
+      PvsSearch.setLateMoveReductions(true);
+    }
+  }
+
+  /**
+    Tests that principal variation search guides the attackers to capture
+    the King.
+   */
+  @Test
+  public void pvsCaptureTest() {
+    try {
+      SearchResult result = PvsSearch.decision(new Node(getNearSurroundedKing(), null, 0), 3);
+      assertEquals(4, result.getMove()[0]);
+      assertEquals(0, result.getMove()[1]);
+      assertEquals(3, result.getDepth());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that principal variation search gives no move when there are no
+    moves.
+   */
+  @Test
+  public void pvsNoMovesTest() {
+    try {
+      SearchResult result = PvsSearch.decision(new Node(getLonelyKing(), null, 0), 3);
+      assertNull(result.getMove());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    A board where the attackers can capture a defender by moving to (3, 4),
+    but the defender at (7, 5), if there is one, then captures the attacker
+    right back.
+
+    @param recapture Whether to put the recapturing defender on the board.
+   */
+  private Board getRecapture(boolean recapture) throws BadAsciiBoardFormatException {
+    return new Board(new char[][]{
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' ', 'A'},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', recapture ? 'D' : ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+    });
+  }
+
+  /**
+    Tests that the quiescence search sees the recapture past the horizon,
+    and that without it a depth 1 search counts the capture as a gain.
+   */
+  @Test
+  public void quiescenceRecaptureTest() {
+    try {
+      Board board = new Board(getRecapture(true), false);
+      double before = Minimax.utility(board);
+      try {
+        Minimax.setQuiescence(false);
+        assertEquals(before - 1, Minimax.minimaxDecision(new Node(board, null, 0), 1).utility(),
+            0.0001);
+        assertEquals(before - 1, PvsSearch.decision(new Node(board, null, 0), 1).utility(),
+            0.0001);
+
+        Minimax.setQuiescence(true);
+        assertEquals(before, Minimax.minimaxDecision(new Node(board, null, 0), 1).utility(),
+            0.0001);
+        assertEquals(before, PvsSearch.decision(new Node(board, null, 0), 1).utility(),
+            0.0001);
+      } finally {
+        Minimax.setQuiescence(true);
+      }
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the quiescence search takes a capture that is safe.
+   */
+  @Test
+  public void quiescenceSafeCaptureTest() {
+    try {
+      Board board = new Board(getRecapture(false), false);
+      double before = Minimax.utility(board);
+      Node result = Minimax.minimaxDecision(new Node(board, null, 0), 1);
+      assertEquals(before - 1, result.utility(), 0.0001);
+      assertEquals(3, result.getMove()[0]);
+      assertEquals(4, result.getMove()[1]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that iterative deepening with aspiration windows scores the same
+    as with full windows, and that a tiny window makes it search again.
+   */
+  @Test
+  public void aspirationWindowTest() {
+    try {
+      Board[] boards = {
+        new Board(new Board(), false), getLeftMiddleKing(), getNearSurroundedKing(),
+        getNextMoveCapture(), getRecapture(true), getRecapture(false)
+      };
+      long researches = 0;
+      for (Board board : boards) {
+        Node root = new Node(board, null, 0);
+        Minimax.setAspirationWindow(0);
+        SearchResult full = Minimax.iterativeDeepening(root, 3, 0);
+
+        for (double width : new double[] {Minimax.DEFAULT_ASPIRATION_WINDOW, 1e-6}) {
+          Minimax.setAspirationWindow(width);
+          SearchControl control = new SearchControl();
+          SearchResult aspired = Minimax.iterativeDeepening(
+              root, 3, 0, 1, Parallelism.ROOT_SPLIT, control);
+          if (full == null) {
+            // Game over, so there is nothing to search.
+            assertNull(aspired);
+            continue;
+          }
+          assertEquals(full.utility(), aspired.utility(), 0.0001);
+          assertEquals(full.getDepth(), aspired.getDepth());
+          if (width < Minimax.DEFAULT_ASPIRATION_WINDOW) {
+            researches += control.getResearches();
+          }
+        }
+      }
+      assertTrue(researches > 0);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      Minimax.setAspirationWindow(Minimax.DEFAULT_ASPIRATION_WINDOW);
+    }
+  }
 }
@@ -0,0 +1,160 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.Engine;
+import cowards.Hnefalump;
+import cowards.MonteCarlo;
+import cowards.Node;
+import cowards.SearchControl;
+import cowards.SearchResult;
+import cowards.UndoRecord;
+import java.util.*;
+import org.junit.Test;
+
+/**
+   Test methods associated with the Monte Carlo tree search.
+ */
+public class MonteCarloTest {
+  /**
+    A board where the defenders can win by moving the King into the top left
+    corner.
+   */
+  private Board getEscapeBoard() throws BadAsciiBoardFormatException {
+    Board board = new Board(new char[][]{
+      {' ', ' ', ' ', ' ', 'K', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', 'A', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+    });
+    board = new Board(board, false);
+    board.setAttackerTurn(false);
+    return board;
+  }
+
+  /**
+    Tests that the search finds a move that wins on the spot.
+   */
+  @Test
+  public void escapeTest() {
+    try {
+      SearchResult result = MonteCarlo.decision(
+          new Node(getEscapeBoard(), null, 0), 0, 2000, 1, new SearchControl());
+      assertNotNull(result);
+      // Either corner of the top row wins.
+      assertEquals(0, result.getMove()[0]);
+      assertTrue(result.getMove()[1] == 0 || result.getMove()[1] == 10);
+      assertTrue(result.utility() > 0.9);
+      assertEquals(2000, result.getNodes());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that several threads run exactly the playouts asked for between
+    them.
+   */
+  @Test
+  public void parallelPlayoutLimitTest() {
+    try {
+      SearchControl control = new SearchControl();
+      SearchResult result = MonteCarlo.decision(
+          new Node(new Board(new Board(), false), null, 0), 0, 300, 3, control);
+      assertNotNull(result);
+      assertNotNull(result.getMove());
+      assertEquals(300, result.getNodes());
+      assertEquals(300, control.getNodes());
+      assertTrue(result.getDepth() >= 1);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a search cancelled before it starts runs no playouts, and that
+    a timed search stops on time.
+   */
+  @Test
+  public void stopTest() {
+    try {
+      Node root = new Node(new Board(new Board(), false), null, 0);
+      SearchControl control = new SearchControl();
+      control.cancel();
+      assertNull(MonteCarlo.decision(root, 0, 0, 2, control));
+      assertEquals(0, control.getNodes());
+
+      long start = System.nanoTime();
+      SearchResult result = MonteCarlo.decision(root, 200, 2);
+      assertNotNull(result);
+      assertTrue(System.nanoTime() - start < 2000000000L);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a playout ends the game and can be taken back.
+   */
+  @Test
+  public void playoutTest() {
+    try {
+      Board board = new Board(new Board(), false);
+      long hash = board.getHash();
+      int[] moves = new int[Board.MAX_MOVES];
+      ArrayList<UndoRecord> undos = new ArrayList<UndoRecord>();
+      double result = MonteCarlo.playout(board, moves, new Random(7), undos);
+      assertTrue(result == 0 || result == MonteCarlo.DRAW || result == 1);
+      assertTrue(board.isGameOver() || undos.size() == MonteCarlo.MAX_PLAYOUT_PLIES);
+
+      for (int i = undos.size() - 1; i >= 0; --i) {
+        board.unmakeMove(undos.get(i));
+      }
+      assertEquals(hash, board.getHash());
+      assertFalse(board.isGameOver());
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the AI can be switched to the Monte Carlo engine.
+   */
+  @Test
+  public void engineChoiceTest() {
+    assertEquals(Engine.MINIMAX, Hnefalump.getEngine());
+    try {
+      Hnefalump.setEngine(Engine.MONTE_CARLO);
+      assertEquals(Engine.MONTE_CARLO, Hnefalump.getEngine());
+
+      int[] move = Hnefalump.getMonteCarloMove(getEscapeBoard(), 500, 2, new SearchControl());
+      assertEquals(0, move[0]);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } finally {
+      Hnefalump.setEngine(Engine.MINIMAX);
+    }
+  }
+
+  /**
+    Tests that there is no move when the game is over.
+   */
+  @Test
+  public void gameOverTest() {
+    try {
+      Board board = getEscapeBoard();
+      board.makeMove(Board.packMove(0, 0, 0, 4));
+      assertTrue(board.isGameOver());
+      assertNull(MonteCarlo.decision(new Node(board, null, 0), 0, 100, 1, new SearchControl()));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
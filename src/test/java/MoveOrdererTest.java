@@ -0,0 +1,119 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.BoardLayout;
+import cowards.BoardProcessor;
+import cowards.MoveOrderer;
+import java.util.*;
+import org.junit.Test;
+
+/**
+   Test methods associated with ordering moves for the search.
+ */
+public class MoveOrdererTest {
+  /**
+    A board where the attacker at the top can capture the defender next to
+    the throne.
+   */
+  private Board getCaptureBoard() throws BadAsciiBoardFormatException {
+    return new Board(new char[][] {
+      {' ', ' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 'A', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+      {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K'}
+    });
+  }
+
+  /** Returns the generated moves of the board. */
+  private int[] generated(Board board) {
+    int[] moves = new int[BoardLayout.MAX_MOVES];
+    return Arrays.copyOf(moves, BoardProcessor.generateMoves(board, moves));
+  }
+
+  /**
+    Test that the table move comes first, then captures, then killers, then
+    moves by history.
+   */
+  @Test
+  public void orderTest() {
+    try {
+      Board board = getCaptureBoard();
+      int capture = BoardLayout.packMove(5, 3, 0, 3);
+      int tableMove = BoardLayout.packMove(8, 0, 8, 8);
+      int killer = BoardLayout.packMove(0, 1, 0, 3);
+      int historic = BoardLayout.packMove(10, 8, 8, 8);
+
+      MoveOrderer orderer = new MoveOrderer();
+      orderer.recordCutoff(board, killer, 1, 2);
+      orderer.recordCutoff(board, historic, 3, 5);
+
+      int[] moves = generated(board);
+      orderer.order(board, moves, moves.length, tableMove, 2);
+      assertEquals(tableMove, moves[0]);
+      assertEquals(capture, moves[1]);
+      assertEquals(killer, moves[2]);
+      assertEquals(historic, moves[3]);
+
+      // Same moves, just reordered.
+      int[] sorted = moves.clone();
+      Arrays.sort(sorted);
+      int[] expected = generated(board);
+      Arrays.sort(expected);
+      assertArrayEquals(expected, sorted);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that moves scoring the same keep the generator's order.
+   */
+  @Test
+  public void stableOrderTest() {
+    try {
+      Board board = new Board();
+      int[] moves = generated(board);
+      int[] original = moves.clone();
+      new MoveOrderer().order(board, moves, moves.length, BoardLayout.NO_MOVE, 0);
+      assertArrayEquals(original, moves);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that captures are not kept as killers, and killers are per ply.
+   */
+  @Test
+  public void killerTest() {
+    try {
+      Board board = getCaptureBoard();
+      int capture = BoardLayout.packMove(5, 3, 0, 3);
+      int quiet = BoardLayout.packMove(0, 1, 0, 3);
+
+      MoveOrderer orderer = new MoveOrderer();
+      orderer.recordCutoff(board, capture, 2, 1);
+      assertFalse(orderer.isKiller(capture, 1));
+      assertEquals(0, orderer.historyScore(capture));
+
+      orderer.recordCutoff(board, quiet, 2, 1);
+      assertTrue(orderer.isKiller(quiet, 1));
+      assertFalse(orderer.isKiller(quiet, 2));
+      assertEquals(4, orderer.historyScore(quiet));
+
+      orderer.clear();
+      assertFalse(orderer.isKiller(quiet, 1));
+      assertEquals(0, orderer.historyScore(quiet));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.BoardLayout;
+import cowards.Perft;
+import org.junit.Test;
+
+/**
+   Test methods associated with the perft move counter.
+ */
+public class PerftTest {
+  /**
+    Test the counts from the initial board. These are the baseline that any
+    change to the rules engine must keep.
+   */
+  @Test
+  public void initialBoardTest() {
+    try {
+      Board board = new Board(BoardLayout.INITIAL_BOARD);
+      assertEquals(1, Perft.perft(board, 0).nodes);
+      assertEquals(116, Perft.perft(board, 1).nodes);
+
+      Perft.Counts counts = Perft.perft(board, 2);
+      assertEquals(6788, counts.nodes);
+      assertEquals(16, counts.captures);
+      assertEquals(0, counts.gameOvers);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that shield wall captures and game overs are counted.
+   */
+  @Test
+  public void shieldWallTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 'K'},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', 'A', 'A', 'A', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'A', 'D', 'D', 'D', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      Perft.Counts counts = Perft.perft(board, 1);
+      assertEquals(1, counts.shieldWalls);
+      assertTrue(counts.captures >= counts.shieldWalls);
+
+      // The king can reach either corner on its edge.
+      board.setAttackerTurn(false);
+      assertEquals(2, Perft.perft(board, 1).gameOvers);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
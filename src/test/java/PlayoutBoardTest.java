@@ -0,0 +1,180 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.BoardProcessor;
+import cowards.GridOutOfBoundsException;
+import cowards.MonteCarlo;
+import cowards.PlayoutBoard;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+   Test methods associated with the playout board, checked move by move
+   against the full Board.
+ */
+public class PlayoutBoardTest {
+  /**
+    Checks that the playout board holds the same position as the board, with
+    the same moves in the same order.
+   */
+  private void assertSame(Board board, PlayoutBoard fast, int[] moves, int[] fastMoves)
+      throws GridOutOfBoundsException {
+    for (int row = 0; row <= Board.GRID_ROW_MAX; ++row) {
+      for (int col = 0; col <= Board.GRID_COL_MAX; ++col) {
+        assertEquals(board.square(row, col), fast.stateAt(row * 11 + col));
+      }
+    }
+    assertEquals(board.isAttackerTurn(), fast.isAttackerTurn());
+    assertEquals(board.isGameOver(), fast.isGameOver());
+    assertEquals(board.isDraw(), fast.isDraw());
+
+    int count = BoardProcessor.generateMoves(board, moves);
+    assertEquals(count, fast.generateMoves(fastMoves));
+    for (int i = 0; i < count; ++i) {
+      assertEquals(moves[i], fastMoves[i]);
+    }
+  }
+
+  /**
+    Plays random games on both boards with the same moves, comparing them
+    after every move.
+
+    @param start The position to start from.
+    @param games The number of games to play.
+    @param seed Seeds the moves.
+
+    @return How many of the games ended before the ply limit.
+   */
+  private int playBoth(Board start, int games, long seed) throws GridOutOfBoundsException {
+    int[] moves = new int[Board.MAX_MOVES];
+    int[] fastMoves = new int[Board.MAX_MOVES];
+    Random random = new Random(seed);
+    int ended = 0;
+
+    for (int game = 0; game < games; ++game) {
+      Board board = new Board(start, false);
+      PlayoutBoard fast = new PlayoutBoard(board);
+      assertSame(board, fast, moves, fastMoves);
+
+      for (int ply = 0; ply < MonteCarlo.MAX_PLAYOUT_PLIES && !board.isGameOver(); ++ply) {
+        int count = BoardProcessor.generateMoves(board, moves);
+        if (count == 0) {
+          break;
+        }
+        int move = moves[random.nextInt(count)];
+        board.makeMove(move);
+        fast.makeMove(move);
+        assertSame(board, fast, moves, fastMoves);
+
+        // Picking the board up mid-game keeps the rules state too.
+        if (ply == 40) {
+          fast = new PlayoutBoard(board);
+          assertSame(board, fast, moves, fastMoves);
+        }
+      }
+
+      if (board.isGameOver()) {
+        ++ended;
+      }
+    }
+
+    return ended;
+  }
+
+  /**
+    Tests that random games from the opening go the same on both boards.
+   */
+  @Test
+  public void openingGamesTest() {
+    try {
+      assertTrue(playBoth(new Board(), 40, 11) > 0);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } catch (GridOutOfBoundsException gx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that random games from a sparse board, where shield walls, exit
+    forts and surrounds come up, go the same on both boards.
+   */
+  @Test
+  public void sparseGamesTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', 'A', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'D', 'D', ' ', ' ', 'A', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {'A', ' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', 'A'},
+        {' ', ' ', ' ', ' ', 'D', 'D', 'D', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', 'D', 'D', 'K', 'D', 'D', ' ', ' ', 'A'},
+        {' ', ' ', ' ', ' ', 'D', 'D', 'D', ' ', ' ', ' ', ' '},
+        {'A', ' ', ' ', ' ', ' ', 'D', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', 'A', 'A', 'A', 'A', 'A', ' ', ' ', ' '}
+      });
+      assertTrue(playBoth(board, 30, 5) > 0);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } catch (GridOutOfBoundsException gx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that the random moves are all legal, and that every legal move
+    comes up.
+   */
+  @Test
+  public void randomMoveTest() {
+    try {
+      PlayoutBoard fast = new PlayoutBoard(new Board());
+      int[] moves = new int[Board.MAX_MOVES];
+      int count = fast.generateMoves(moves);
+      HashSet<Integer> legal = new HashSet<Integer>();
+      for (int i = 0; i < count; ++i) {
+        legal.add(moves[i]);
+      }
+
+      HashSet<Integer> seen = new HashSet<Integer>();
+      Random random = new Random(9);
+      for (int i = 0; i < 100 * count; ++i) {
+        int move = fast.randomMove(random, new int[Board.MAX_MOVES]);
+        assertTrue(legal.contains(move));
+        seen.add(move);
+      }
+      assertEquals(legal, seen);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Tests that a copy plays on without touching the board it was copied
+    from.
+   */
+  @Test
+  public void copyTest() {
+    try {
+      PlayoutBoard root = new PlayoutBoard(new Board());
+      PlayoutBoard fast = new PlayoutBoard();
+      fast.copy(root);
+      int[] moves = new int[Board.MAX_MOVES];
+      double result = MonteCarlo.playout(fast, moves, new Random(3));
+      assertTrue(result == 0 || result == MonteCarlo.DRAW || result == 1);
+
+      assertFalse(root.isGameOver());
+      assertTrue(root.isAttackerTurn());
+      assertEquals(24, root.attackerCount());
+      assertEquals(13, root.defendingCount());
+      int[] opening = new int[Board.MAX_MOVES];
+      assertEquals(BoardProcessor.generateMoves(new Board(), moves), root.generateMoves(opening));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.TimeManager;
+import org.junit.Test;
+
+/**
+   Test methods associated with the AI's time management.
+ */
+public class TimeManagerTest {
+  /**
+    Test that the budget spends a share of the clock plus most of the
+    appended time.
+   */
+  @Test
+  public void budgetShareTest() {
+    assertEquals(300000 / 40 + 2250, TimeManager.budgetMillis(300000, 3000, 37));
+    assertEquals(300000 / 15 + 2250, TimeManager.budgetMillis(300000, 3000, 0));
+  }
+
+  /**
+    Test that fewer pieces left means more time per move.
+   */
+  @Test
+  public void budgetPhaseTest() {
+    assertTrue(TimeManager.budgetMillis(300000, 0, 10)
+        > TimeManager.budgetMillis(300000, 0, 30));
+  }
+
+  /**
+    Test that a large appended time cannot make the AI flag.
+   */
+  @Test
+  public void budgetCapTest() {
+    long budget = TimeManager.budgetMillis(5000, 60000, 37);
+    assertEquals((5000 - TimeManager.SAFETY_MILLIS) / 2, budget);
+    assertTrue(budget < 5000);
+  }
+
+  /**
+    Test that the AI still gets some time with little time left, but never
+    more than is left, and never no limit at all.
+   */
+  @Test
+  public void budgetMinimumTest() {
+    assertEquals(TimeManager.MIN_MILLIS, TimeManager.budgetMillis(1000, 3000, 37));
+    assertEquals(TimeManager.MIN_MILLIS, TimeManager.budgetMillis(800, 0, 37));
+    assertEquals(30, TimeManager.budgetMillis(30, 0, 37));
+    assertEquals(1, TimeManager.budgetMillis(0, 0, 37));
+  }
+
+  /**
+    Test that the budget follows the clock of the side to move.
+   */
+  @Test
+  public void budgetBoardTest() {
+    try {
+      Board board = new Board();
+      board.getAttackerTimer().reconfigure(300, 3);
+      assertEquals(TimeManager.budgetMillis(300000, 3000, 37), TimeManager.budgetMillis(board));
+
+      // Setting the clock after the turn passes holds it still.
+      board.setAttackerTurn(false);
+      board.getDefenderTimer().reconfigure(30, 3);
+      assertEquals(TimeManager.budgetMillis(30000, 3000, 37), TimeManager.budgetMillis(board));
+
+      Board untimed = new Board(board, false);
+      assertEquals(TimeManager.UNTIMED_MILLIS, TimeManager.budgetMillis(untimed));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}
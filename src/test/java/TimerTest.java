@@ -3,6 +3,9 @@ import static org.junit.Assert.*;
 import cowards.BadAsciiBoardFormatException;
 import cowards.Board;
 import cowards.BoardTimer;
+import cowards.GridOutOfBoundsException;
+import java.util.HashMap;
+import java.util.LinkedList;
 
 import org.junit.Test;
 
@@ -252,4 +255,169 @@ public class TimerTest {
     timer.start();
     assertFalse(timer.isCountingDown());
   }
+
+  /**
+    Test that boards with timers share the clock thread rather than starting
+    threads of their own.
+   */
+  @Test
+  public void sharedClockThreadTest() {
+    try {
+      new Board().killTimers();
+      int before = Thread.activeCount();
+      Board[] boards = new Board[100];
+      for (int i = 0; i < boards.length; ++i) {
+        boards[i] = new Board();
+      }
+      assertTrue(Thread.activeCount() <= before + 1);
+
+      for (Board board : boards) {
+        board.killTimers();
+        assertTrue(board.getAttackerTimer().isKilled());
+        assertTrue(board.getDefenderTimer().isKilled());
+      }
+    } catch (BadAsciiBoardFormatException ax) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a tickless timer counts down to the millisecond, and only
+    while it is running.
+   */
+  @Test
+  public void ticklessTimerTest() {
+    assertTrue(BoardTimer.isTicklessDefault());
+    BoardTimer timer = new BoardTimer(1, 3);
+    assertTrue(timer.isTickless());
+    assertEquals(1000, timer.getTimeRemainingMillis());
+
+    try {
+      timer.start();
+      Thread.sleep(50);
+      long remaining = timer.getTimeRemainingMillis();
+      assertTrue(remaining <= 950 && remaining > 0);
+      // Part of a second left still reads as a second.
+      assertEquals(1, timer.getTimeRemaining());
+      assertEquals("00:01", timer.getTimeRemainingAsText());
+
+      timer.stop(true);
+      remaining = timer.getTimeRemainingMillis();
+      Thread.sleep(20);
+      assertEquals(remaining, timer.getTimeRemainingMillis());
+
+      timer.start();
+      Thread.sleep(1000);
+      assertEquals(0, timer.getTimeRemainingMillis());
+      assertEquals("00:00", timer.getTimeRemainingAsText());
+      assertEquals(3, timer.stop(false));
+    } catch (InterruptedException ix) {
+      fail();
+    }
+  }
+
+  /**
+    Test that the ticking timers can still be chosen.
+   */
+  @Test
+  public void tickingTimerTest() {
+    try {
+      BoardTimer.setTickless(false);
+      BoardTimer timer = new BoardTimer(300, 3);
+      assertFalse(timer.isTickless());
+      timer.start();
+      assertEquals(300000, timer.getTimeRemainingMillis());
+      assertEquals(303, timer.stop(false));
+      timer.kill();
+      assertTrue(timer.isKilled());
+    } finally {
+      BoardTimer.setTickless(true);
+    }
+  }
+
+  /**
+    Waits up to a few seconds for the game on a board to end.
+   */
+  private void awaitGameOver(Board board) throws InterruptedException {
+    for (int i = 0; i < 600 && !board.isGameOver(); ++i) {
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+    Test that the game ends as the side to move runs out of time, and that
+    the clocks stop with it.
+   */
+  @Test
+  public void flagFallTest() {
+    try {
+      Board.setTimerInitial(1);
+      long start = System.nanoTime();
+      Board board = new Board();
+      awaitGameOver(board);
+      long elapsed = (System.nanoTime() - start) / 1000000;
+
+      assertTrue(board.isGameOver());
+      assertFalse(board.isAttackerTurn());
+      assertTrue(elapsed >= 1000 && elapsed < 1500);
+      assertTrue(board.getAttackerTimer().isKilled());
+      assertTrue(board.getDefenderTimer().isKilled());
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    } finally {
+      Board.setTimerInitial(-1);
+    }
+  }
+
+  /**
+    Test that no flag falls while the timers are paused, and that the flag
+    follows the turn once they resume.
+   */
+  @Test
+  public void flagFallPauseTest() {
+    try {
+      Board.setTimerInitial(1);
+      Board board = new Board();
+      board.pauseTimers();
+      Thread.sleep(1200);
+      assertFalse(board.isGameOver());
+
+      // The attackers get their appended seconds, so the defenders run out.
+      board.resumeTimers();
+      board.setAttackerTurn(false);
+      awaitGameOver(board);
+      assertTrue(board.isGameOver());
+      assertTrue(board.isAttackerTurn());
+      assertTrue(board.getAttackerTimer().getTimeRemaining() > 0);
+    } catch (BadAsciiBoardFormatException | InterruptedException ex) {
+      fail();
+    } finally {
+      Board.setTimerInitial(-1);
+    }
+  }
+
+  /**
+    Test that a board built with no time on either clock, as the benchmark
+    corpus builds its positions, never loses on time.
+   */
+  @Test
+  public void noTimeControlTest() {
+    try {
+      Board.GridSquareState[][] grid = new Board().getBoard();
+      Board board = new Board(grid, new LinkedList<int []>(), new LinkedList<int []>(),
+          1, 5, 5, true, 0, 0, 0, new HashMap<String, Integer>());
+      Thread.sleep(100);
+      assertFalse(board.isGameOver());
+      assertTrue(board.isAttackerTurn());
+
+      // Nor once the turn passes.
+      assertTrue(board.select(0, 3) && board.move(2, 3));
+      Thread.sleep(100);
+      assertFalse(board.isGameOver());
+      assertFalse(board.isAttackerTurn());
+      board.killTimers();
+    } catch (BadAsciiBoardFormatException | GridOutOfBoundsException | InterruptedException ex) {
+      fail();
+    }
+  }
 }
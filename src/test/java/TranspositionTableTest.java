@@ -0,0 +1,255 @@
+import static org.junit.Assert.*;
+
+import cowards.BadAsciiBoardFormatException;
+import cowards.Board;
+import cowards.BoardLayout;
+import cowards.GridOutOfBoundsException;
+import cowards.Minimax;
+import cowards.Node;
+import cowards.PvsSearch;
+import cowards.TranspositionTable;
+import cowards.Zobrist;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+   Test methods associated with Zobrist hashing and the transposition table.
+ */
+public class TranspositionTableTest {
+
+  /**
+    Make a timer-free copy of the board and play a move on it.
+   */
+  private Board play(Board board, int fromRow, int fromCol, int toRow, int toCol)
+      throws GridOutOfBoundsException {
+    Board copy = new Board(board, false);
+    assertTrue(copy.select(fromRow, fromCol));
+    assertTrue(copy.move(toRow, toCol));
+    return copy;
+  }
+
+  /**
+    Test that equal boards hash equally.
+   */
+  @Test
+  public void hashRepeatableTest() {
+    try {
+      assertEquals(Zobrist.hash(new Board()), Zobrist.hash(new Board()));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that the side to move is part of the hash.
+   */
+  @Test
+  public void hashSideToMoveTest() {
+    try {
+      Board board = new Board();
+      long attackerHash = Zobrist.hash(board);
+      board.setAttackerTurn(false);
+      assertNotEquals(attackerHash, Zobrist.hash(board));
+      assertEquals(attackerHash ^ Zobrist.attackerTurnKey(), Zobrist.hash(board));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that two move orders reaching the same position hash the same.
+   */
+  @Test
+  public void hashTranspositionTest() {
+    try {
+      Board start = new Board();
+
+      // Attacker slide, defender slide, other attacker slide, and the
+      // other way around.
+      Board first = play(play(play(start, 0, 3, 1, 3), 3, 5, 3, 8), 0, 7, 1, 7);
+      Board second = play(play(play(start, 0, 7, 1, 7), 3, 5, 3, 8), 0, 3, 1, 3);
+      assertEquals(Zobrist.hash(first), Zobrist.hash(second));
+      assertNotEquals(Zobrist.hash(start), Zobrist.hash(first));
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    } catch (GridOutOfBoundsException gx) {
+      fail();
+    }
+  }
+
+  /**
+    Test that a stored entry can be retrieved.
+   */
+  @Test
+  public void storeProbeTest() {
+    TranspositionTable table = new TranspositionTable(4);
+    int move = BoardLayout.packMove(1, 3, 0, 3);
+    table.store(12345L, 3, TranspositionTable.EXACT, 2.5, move);
+
+    long entry = table.probe(12345L);
+    assertNotEquals(TranspositionTable.MISS, entry);
+    assertEquals(3, TranspositionTable.getDepth(entry));
+    assertEquals(TranspositionTable.EXACT, TranspositionTable.getBound(entry));
+    assertEquals(2.5, TranspositionTable.getScore(entry), .001);
+    assertEquals(move, TranspositionTable.getMove(entry));
+  }
+
+  /**
+    Test that a different position sharing the slot is a miss.
+   */
+  @Test
+  public void probeMissTest() {
+    TranspositionTable table = new TranspositionTable(4);
+    table.store(1L, 3, TranspositionTable.EXACT, 2.5, BoardLayout.NO_MOVE);
+    assertEquals(TranspositionTable.MISS, table.probe(17L));
+    assertEquals(TranspositionTable.MISS, table.probe(2L));
+  }
+
+  /**
+    Test that a shallower search does not replace a deeper one of the same
+    position, but a different position does.
+   */
+  @Test
+  public void replacementTest() {
+    TranspositionTable table = new TranspositionTable(4);
+    table.store(1L, 3, TranspositionTable.EXACT, 2.5, BoardLayout.NO_MOVE);
+    table.store(1L, 1, TranspositionTable.EXACT, 9.0, BoardLayout.NO_MOVE);
+    assertEquals(2.5, TranspositionTable.getScore(table.probe(1L)), .001);
+
+    table.store(17L, 1, TranspositionTable.EXACT, 9.0, BoardLayout.NO_MOVE);
+    assertEquals(TranspositionTable.MISS, table.probe(1L));
+    assertEquals(9.0, TranspositionTable.getScore(table.probe(17L)), .001);
+  }
+
+  /**
+    Test that bounds only settle a position when they fall outside the window.
+   */
+  @Test
+  public void cutoffTest() {
+    TranspositionTable table = new TranspositionTable(4);
+    table.store(1L, 2, TranspositionTable.LOWER, 5.0, BoardLayout.NO_MOVE);
+    long entry = table.probe(1L);
+    assertTrue(TranspositionTable.isCutoff(entry, 2, 0, 4));
+    assertFalse(TranspositionTable.isCutoff(entry, 2, 0, 6));
+    assertFalse(TranspositionTable.isCutoff(entry, 3, 0, 4));
+
+    table.store(1L, 2, TranspositionTable.UPPER, 5.0, BoardLayout.NO_MOVE);
+    entry = table.probe(1L);
+    assertTrue(TranspositionTable.isCutoff(entry, 2, 6, 9));
+    assertFalse(TranspositionTable.isCutoff(entry, 2, 4, 9));
+  }
+
+  /**
+    Test that every field survives packing, including NO_MOVE and depths too
+    deep for the entry.
+   */
+  @Test
+  public void packTest() {
+    long entry = TranspositionTable.pack(
+        100000, TranspositionTable.UPPER, -2.5, BoardLayout.NO_MOVE);
+    assertEquals(TranspositionTable.MAX_DEPTH, TranspositionTable.getDepth(entry));
+    assertEquals(TranspositionTable.UPPER, TranspositionTable.getBound(entry));
+    assertEquals(-2.5, TranspositionTable.getScore(entry), .001);
+    assertEquals(BoardLayout.NO_MOVE, TranspositionTable.getMove(entry));
+
+    int move = BoardLayout.packMove(10, 10, 10, 0);
+    entry = TranspositionTable.pack(0, TranspositionTable.LOWER, 100, move);
+    assertEquals(0, TranspositionTable.getDepth(entry));
+    assertEquals(move, TranspositionTable.getMove(entry));
+    assertNotEquals(TranspositionTable.MISS, entry);
+  }
+
+  /**
+    Test that bounds are rounded to floats on the side that keeps them true,
+    and that the rounding is well within the null window.
+   */
+  @Test
+  public void boundRoundingTest() {
+    double score = 1.0 / 3;
+    int none = BoardLayout.NO_MOVE;
+    byte lower = TranspositionTable.LOWER;
+    byte upper = TranspositionTable.UPPER;
+    assertTrue(TranspositionTable.getScore(
+        TranspositionTable.pack(1, lower, score, none)) <= score);
+    assertTrue(TranspositionTable.getScore(
+        TranspositionTable.pack(1, upper, score, none)) >= score);
+    assertTrue(TranspositionTable.getScore(
+        TranspositionTable.pack(1, lower, -score, none)) <= -score);
+    assertTrue(TranspositionTable.getScore(
+        TranspositionTable.pack(1, upper, -score, none)) >= -score);
+
+    double decisive = 2 * Minimax.DECISIVE_UTILITY + score;
+    long entry = TranspositionTable.pack(1, TranspositionTable.EXACT, decisive, none);
+    double error = Math.abs(TranspositionTable.getScore(entry) - decisive);
+    assertTrue(error * 10 < PvsSearch.NULL_WINDOW);
+  }
+
+  /**
+    Test that threads storing different positions into the same slots never
+    read back a mix of two entries.
+   */
+  @Test
+  public void concurrentStoreProbeTest() {
+    TranspositionTable table = new TranspositionTable(2);
+    AtomicBoolean torn = new AtomicBoolean(false);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; ++t) {
+      long offset = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 20000; ++i) {
+          // Each key's entry is derived from the key, so a mix is detectable.
+          long key = ((i + offset) % 16) * 4;
+          table.store(key, (int) key, TranspositionTable.EXACT, key, BoardLayout.NO_MOVE);
+          long entry = table.probe(key);
+          if (entry != TranspositionTable.MISS
+              && (TranspositionTable.getDepth(entry) != key
+              || TranspositionTable.getScore(entry) != key)) {
+            torn.set(true);
+          }
+        }
+      });
+      threads[t].start();
+    }
+
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException ix) {
+      fail();
+    }
+    assertFalse(torn.get());
+  }
+
+  /**
+    Test that the search records its decision at the root.
+   */
+  @Test
+  public void searchStoresRootTest() {
+    try {
+      Board board = new Board(new char[][]{
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', 'A', 'K', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', 'A', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '},
+        {' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' '}
+      });
+      TranspositionTable table = new TranspositionTable();
+      Node result = Minimax.minimaxDecision(new Node(board, null, 0), 2, table);
+
+      long entry = table.probe(Zobrist.hash(board));
+      assertNotEquals(TranspositionTable.MISS, entry);
+      assertEquals(2, TranspositionTable.getDepth(entry));
+      assertEquals(BoardLayout.packMove(5, 3, 5, 4), TranspositionTable.getMove(entry));
+      assertEquals(result.utility(), TranspositionTable.getScore(entry), .001);
+    } catch (BadAsciiBoardFormatException bx) {
+      fail();
+    }
+  }
+}